@@ -1,3 +1,7 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -6,45 +10,168 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import console.CliParametersProcessor;
+import console.ConsoleWriter;
 import console.ICliParametersProcessor;
+import health.FeedHealthMonitor;
+import health.MetricsHttpServer;
+import health.StartupReport;
+import model.IOrderBookFactory;
+import model.OffHeapOrderBookStore;
+import model.OrderBook;
+import sink.CsvFileSink;
+import sink.SinkRuntime;
+import warmup.PipelineWarmUp;
 import websocket.WebSocketClient;
+import websocket.message.IFeedListener;
+import websocket.message.IMessageHandler;
+import websocket.message.WebSocketMessageHandler;
 
+/**
+ * Fast start: -Dorderbook.startup.warmup=true JIT compiles the message pipeline on synthetic frames before
+ * connecting. Class loading is cut with an AppCDS archive recorded by a training run, which exits once the startup
+ * report is logged:
+ * <pre>
+ * java -XX:ArchiveClassesAtExit=orderbook.jsa -Dorderbook.startup.training=true ... Application BTC/USD
+ * java -XX:SharedArchiveFile=orderbook.jsa ... Application BTC/USD
+ * </pre>
+ * The class path must consist of jars for the archive to be used.
+ */
 public class Application {
 
     private static final Logger LOGGER = LogManager.getLogger(Application.class);
 
     public static final String KRAKEN_WS_URI = "wss://ws.kraken.com/";
+    public static final String OFF_HEAP_STORAGE_PROPERTY = "orderbook.storage.offheap";
+    public static final String METRICS_PORT_PROPERTY = "orderbook.metrics.port";
+    public static final String METRICS_BIND_PROPERTY = "orderbook.metrics.bind";
+    public static final String STALE_AFTER_MILLIS_PROPERTY = "orderbook.health.stale.millis";
+    public static final String HEALTH_CHECK_MILLIS_PROPERTY = "orderbook.health.check.millis";
+    public static final String WARM_UP_PROPERTY = "orderbook.startup.warmup";
+    public static final String WARM_UP_MILLIS_PROPERTY = "orderbook.startup.warmup.millis";
+    public static final String TRAINING_RUN_PROPERTY = "orderbook.startup.training";
+    public static final String STARTUP_REPORT_MESSAGES_PROPERTY = "orderbook.startup.report.messages";
+    public static final String SINK_FILE_PROPERTY = "orderbook.sink.file";
+    public static final String SINK_MAILBOX_PROPERTY = "orderbook.sink.mailbox";
+    public static final String SINK_DEPTH_PROPERTY = "orderbook.sink.depth";
+    public static final String SINK_CLOSE_GRACE_MILLIS_PROPERTY = "orderbook.sink.close.grace.millis";
+    public static final String SINK_REPORT_MILLIS_PROPERTY = "orderbook.sink.report.millis";
 
     public static void main(String[] args) {
+        long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getUptime();
         try {
             ICliParametersProcessor parametersProcessor = new CliParametersProcessor();
             List<String> orderBookPairs = parametersProcessor.processArguments(args);
+            boolean trainingRun = Boolean.getBoolean(TRAINING_RUN_PROPERTY);
+            boolean warmUp = Boolean.getBoolean(WARM_UP_PROPERTY) || trainingRun;
+            // One factory for the warm-up and the live books, a live book replaces the warm-up one of its pair
+            IOrderBookFactory orderBookFactory = createOrderBookFactory();
+            long warmUpMillis = 0;
+            if (warmUp) {
+                long warmUpStart = System.nanoTime();
+                PipelineWarmUp.run(orderBookFactory, Long.getLong(WARM_UP_MILLIS_PROPERTY, 5_000));
+                warmUpMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - warmUpStart);
+            }
+            // Serve the feed health when started with -Dorderbook.metrics.port=<port>, on the loopback interface
+            // unless -Dorderbook.metrics.bind=<address> asks for another one, e.g. 0.0.0.0
+            Integer metricsPort = Integer.getInteger(METRICS_PORT_PROPERTY);
+            FeedHealthMonitor healthMonitor = null;
+            MetricsHttpServer metricsServer = null;
+            if (metricsPort != null) {
+                healthMonitor = new FeedHealthMonitor(Long.getLong(STALE_AFTER_MILLIS_PROPERTY, 10_000));
+                healthMonitor.start(Long.getLong(HEALTH_CHECK_MILLIS_PROPERTY, 1_000));
+                String bindAddress = System.getProperty(METRICS_BIND_PROPERTY);
+                metricsServer = bindAddress == null ? new MetricsHttpServer(metricsPort, healthMonitor)
+                        : new MetricsHttpServer(InetAddress.getByName(bindAddress), metricsPort, healthMonitor);
+                metricsServer.start();
+            }
+            // Blocking outputs run on their own threads, fed with the book changes, and are closed on Control-c
+            SinkRuntime sinkRuntime = new SinkRuntime(healthMonitor == null ? IFeedListener.NONE : healthMonitor,
+                    Integer.getInteger(SINK_DEPTH_PROPERTY, 10), Long.getLong(SINK_CLOSE_GRACE_MILLIS_PROPERTY, 5_000));
+            registerSinks(sinkRuntime);
+            CountDownLatch doneSignal = createCountDownLatch(sinkRuntime);
             /////////////////////////////////////////////////
             // Connect to Kraken WebSocket API and do the processing
             /////////////////////////////////////////////////
-            WebSocketClient wsc = new WebSocketClient(KRAKEN_WS_URI);
+            // A training run stops once the startup is measured, so its loaded classes can be archived at exit
+            StartupReport startupReport = new StartupReport(sinkRuntime, describeStartup(warmUp),
+                    Integer.getInteger(STARTUP_REPORT_MESSAGES_PROPERTY, 1_000),
+                    trainingRun ? doneSignal::countDown : () -> { });
+            startupReport.phaseDone("JVM start to main", jvmStartMillis);
+            if (warmUp) {
+                startupReport.phaseDone("warm-up", warmUpMillis);
+            }
+            IMessageHandler messageHandler = new WebSocketMessageHandler(orderBookFactory, startupReport);
+            long connectStart = System.nanoTime();
+            WebSocketClient wsc = healthMonitor == null ? new WebSocketClient(KRAKEN_WS_URI, messageHandler)
+                    : new WebSocketClient(KRAKEN_WS_URI, messageHandler, healthMonitor);
+            startupReport.phaseDone("connect", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - connectStart));
+            startupReport.subscriptionSent();
             wsc.subscribe(orderBookPairs);
             // Block in wait state till unlocked by pressing Control-c
-            createCountDownLatch().await();
-        } catch (InterruptedException e) {
+            doneSignal.await();
+            if (metricsServer != null) {
+                metricsServer.stop();
+                healthMonitor.stop();
+            }
+            if (trainingRun) {
+                System.exit(0);
+            }
+        } catch (InterruptedException | IOException e) {
             LOGGER.error(e);
         }
     }
 
-    private static CountDownLatch createCountDownLatch() {
+    private static void registerSinks(SinkRuntime sinkRuntime) throws IOException {
+        ConsoleWriter.registerSinks(sinkRuntime);
+        // Record the top of book of all pairs when started with -Dorderbook.sink.file=<path>
+        String sinkFile = System.getProperty(SINK_FILE_PROPERTY);
+        if (sinkFile != null) {
+            sinkRuntime.register("file", null, new CsvFileSink(Paths.get(sinkFile)),
+                    Integer.getInteger(SINK_MAILBOX_PROPERTY, 1024));
+        }
+        Long reportMillis = Long.getLong(SINK_REPORT_MILLIS_PROPERTY);
+        if (reportMillis != null) {
+            sinkRuntime.startReporting(reportMillis);
+        }
+    }
+
+    private static IOrderBookFactory createOrderBookFactory() {
+        // Keep the price points of all books off-heap when started with -Dorderbook.storage.offheap=true
+        IOrderBookFactory storage = Boolean.getBoolean(OFF_HEAP_STORAGE_PROPERTY) ? new OffHeapOrderBookStore()
+                : pair -> new OrderBook();
+        return ConsoleWriter.withBucketViews(storage);
+    }
+
+    private static String describeStartup(boolean warmUp) {
+        String cds = "CDS default";
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith("-XX:SharedArchiveFile")) {
+                cds = "AppCDS";
+            } else if (argument.startsWith("-XX:ArchiveClassesAtExit")) {
+                cds = "AppCDS training";
+            } else if (argument.equals("-Xshare:off")) {
+                cds = "CDS off";
+            }
+        }
+        return (warmUp ? "warm-up on, " : "warm-up off, ") + cds;
+    }
+
+    private static CountDownLatch createCountDownLatch(SinkRuntime sinkRuntime) {
         // Create barrier and set countdown counter to 1
         CountDownLatch doneSignal = new CountDownLatch(1);
-        Runtime.getRuntime().addShutdownHook(createShutDownHook(doneSignal));
+        Runtime.getRuntime().addShutdownHook(createShutDownHook(doneSignal, sinkRuntime));
         return doneSignal;
     }
 
-    private static Thread createShutDownHook(CountDownLatch doneSignal) {
+    private static Thread createShutDownHook(CountDownLatch doneSignal, SinkRuntime sinkRuntime) {
         return new Thread() {
             /**
              * Callback for Control-c
              */
             @Override
             public void run() {
+                // Drain and close the sinks while the JVM is still up, the main thread may not get to run again
+                sinkRuntime.close();
                 // Unlock the latch with main thread awaiting for it, will continue and do the clean up
                 doneSignal.countDown();
             }
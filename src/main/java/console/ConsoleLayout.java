@@ -0,0 +1,43 @@
+package console;
+
+import static java.lang.String.format;
+
+import java.util.Locale;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Ways of displaying the order books on the console, selected with -Dorderbook.console.layout.
+ */
+public enum ConsoleLayout {
+    /**
+     * Scrolling dump of every level of every pair on each message
+     */
+    DUMP,
+    /**
+     * Fixed layout grid of pairs with their top levels, redrawing only the changed cells
+     */
+    DASHBOARD,
+    /**
+     * Scrolling dump of every pair grouped into coarser price buckets, see -Dorderbook.console.buckets
+     */
+    BUCKETS,
+    /**
+     * One top of book line per change, printed by a sink thread instead of the WebSocket read thread
+     */
+    SINK;
+
+    /**
+     * @return the layout of the given name, or {@link #DUMP} with a warning if there is none
+     */
+    static ConsoleLayout of(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            Logger logger = LogManager.getLogger(ConsoleLayout.class);
+            logger.warn(format("Unknown console layout '%s', using %s", name, DUMP));
+            return DUMP;
+        }
+    }
+}
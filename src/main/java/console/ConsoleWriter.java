@@ -4,19 +4,76 @@ import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.SortedMap;
 
+import model.IOrderBookFactory;
 import model.OrderBook;
+import model.PriceBucketRegistry;
+import model.PriceBucketView;
+import sink.ConsoleSink;
+import sink.SinkRuntime;
 
 public class ConsoleWriter {
 
+    public static final String LAYOUT_PROPERTY = "orderbook.console.layout";
+    public static final String DEPTH_PROPERTY = "orderbook.console.depth";
+    public static final String PANELS_PER_ROW_PROPERTY = "orderbook.console.panels";
+    public static final String BUCKET_SIZES_PROPERTY = "orderbook.console.buckets";
+    public static final String SINK_MAILBOX_PROPERTY = "orderbook.console.mailbox";
+
     private static final String BEST_ASK_OR_BID_MSG_FORMAT = "best %s: [%s, %s]%n";
     private static final String ORDER_BOOK_ASKS = "asks";
     private static final String ORDER_BOOK_BIDS = "bids";
 
+    private static final ConsoleLayout LAYOUT = ConsoleLayout.of(System.getProperty(LAYOUT_PROPERTY, "dump"));
+
+    private static TerminalDashboard dashboard;
+    private static PriceBucketRegistry bucketRegistry;
+
+    /**
+     * Books shown with the bucket layout are followed by incrementally maintained bucket views, with the comma
+     * separated bucket sizes of -Dorderbook.console.buckets, 10 by default.
+     * @param orderBookFactory - provides the storage of the books
+     * @return the factory to create the books with
+     */
+    public static synchronized IOrderBookFactory withBucketViews(IOrderBookFactory orderBookFactory) {
+        if (LAYOUT != ConsoleLayout.BUCKETS) {
+            return orderBookFactory;
+        }
+        String[] sizes = System.getProperty(BUCKET_SIZES_PROPERTY, "10").split(",");
+        float[] bucketSizes = new float[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            bucketSizes[i] = Float.parseFloat(sizes[i].trim());
+        }
+        bucketRegistry = new PriceBucketRegistry(orderBookFactory, bucketSizes);
+        return bucketRegistry;
+    }
+
+    /**
+     * With the sink layout, the console is written by a sink of the runtime rather than by {@link #display(Map)}.
+     * @param sinkRuntime - the runtime to register the console sink with
+     */
+    public static void registerSinks(SinkRuntime sinkRuntime) {
+        if (LAYOUT == ConsoleLayout.SINK) {
+            sinkRuntime.register("console", null, new ConsoleSink(System.out),
+                    Integer.getInteger(SINK_MAILBOX_PROPERTY, 1024));
+        }
+    }
+
     /**
      * Simple console printing method to display the order book asks and bids for the given pair
      * @param orderBookMap a map of pair and corresponding order book
      */
     public static void display(Map<String, OrderBook> orderBookMap) {
+        if (LAYOUT == ConsoleLayout.DASHBOARD) {
+            displayDashboard(orderBookMap);
+            return;
+        }
+        if (LAYOUT == ConsoleLayout.BUCKETS) {
+            displayBuckets(orderBookMap);
+            return;
+        }
+        if (LAYOUT == ConsoleLayout.SINK) {
+            return;
+        }
         for (Map.Entry<String, OrderBook> orderBookEntry : orderBookMap.entrySet()) {
             OrderBook book = orderBookEntry.getValue();
             printBeggingMessage();
@@ -28,6 +85,49 @@ public class ConsoleWriter {
         }
     }
 
+    private static synchronized void displayDashboard(Map<String, OrderBook> orderBookMap) {
+        // messages without a book, e.g. events, leave the dashboard as it is
+        if (orderBookMap.isEmpty()) {
+            return;
+        }
+        if (dashboard == null) {
+            dashboard = new TerminalDashboard(System.out, Integer.getInteger(DEPTH_PROPERTY, 10),
+                    Integer.getInteger(PANELS_PER_ROW_PROPERTY, 3));
+        }
+        dashboard.render(orderBookMap);
+    }
+
+    private static synchronized void displayBuckets(Map<String, OrderBook> orderBookMap) {
+        if (bucketRegistry == null) {
+            return;
+        }
+        int depth = Integer.getInteger(DEPTH_PROPERTY, 10);
+        for (String pair : orderBookMap.keySet()) {
+            for (PriceBucketView view : bucketRegistry.getViews(pair)) {
+                printBeggingMessage();
+                System.out.println("asks:");
+                printTopBuckets(view.getAsks(), depth);
+                System.out.println("bids:");
+                printTopBuckets(view.getBids(), depth);
+                System.out.printf("%s buckets of %s%n", pair, view.getBucketSize());
+                printLocalDateTime();
+                printEndMessage();
+            }
+        }
+    }
+
+    /**
+     * Print the best buckets, which are the last ones of the side order.
+     */
+    private static void printTopBuckets(SortedMap<Float, Float> buckets, int depth) {
+        int skip = Math.max(0, buckets.size() - depth);
+        for (Map.Entry<Float, Float> bucket : buckets.entrySet()) {
+            if (skip-- <= 0) {
+                System.out.printf("[ %s, %s ]%n", bucket.getKey(), bucket.getValue());
+            }
+        }
+    }
+
     private static void printLocalDateTime() {
         System.out.println(LocalDateTime.now());
     }
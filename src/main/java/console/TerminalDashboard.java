@@ -0,0 +1,183 @@
+package console;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import model.OrderBook;
+
+/**
+ * Fixed layout terminal dashboard showing the top levels of every pair in a grid of panels. The previous frame is
+ * kept in a character buffer and only the cells whose content changed are written, using ANSI cursor moves, so a
+ * typical frame costs tens of bytes instead of a full dump of every book.
+ */
+public class TerminalDashboard {
+
+    private static final char ESC = '\u001b';
+    private static final String CLEAR_SCREEN = ESC + "[2J";
+    private static final int PANEL_WIDTH = 34;
+    private static final int PRICE_WIDTH = 14;
+    private static final int VOLUME_WIDTH = 14;
+    // a cursor move costs about as much as rewriting this many unchanged cells
+    private static final int MAX_UNCHANGED_GAP = 8;
+
+    private final PrintStream out;
+    private final int depth;
+    private final int panelsPerRow;
+    private final int panelHeight;
+    private final Map<String, Integer> panelSlots = new LinkedHashMap<>();
+    private final StringBuilder output = new StringBuilder();
+    private final float[] topPrices;
+    private final float[] topVolumes;
+
+    private char[][] previousFrame = new char[0][];
+    private char[][] frame = new char[0][];
+    private boolean cleared;
+    private int lastFrameBytes;
+
+    /**
+     * @param out - the terminal stream
+     * @param depth - the number of ask and bid levels shown per pair
+     * @param panelsPerRow - the number of pair panels side by side
+     */
+    public TerminalDashboard(PrintStream out, int depth, int panelsPerRow) {
+        this.out = out;
+        this.depth = depth;
+        this.panelsPerRow = panelsPerRow;
+        // pair name, asks, spread line, bids and a blank separator row
+        this.panelHeight = depth * 2 + 3;
+        this.topPrices = new float[depth];
+        this.topVolumes = new float[depth];
+    }
+
+    /**
+     * Draw the order books and write the cells that differ from the previously drawn frame.
+     * @param orderBookMap a map of pair and corresponding order book
+     */
+    public void render(Map<String, OrderBook> orderBookMap) {
+        for (String pair : orderBookMap.keySet()) {
+            panelSlots.putIfAbsent(pair, panelSlots.size());
+        }
+        resizeFrames();
+        for (char[] row : frame) {
+            Arrays.fill(row, ' ');
+        }
+        for (Map.Entry<String, OrderBook> orderBookEntry : orderBookMap.entrySet()) {
+            drawPanel(panelSlots.get(orderBookEntry.getKey()), orderBookEntry.getKey(), orderBookEntry.getValue());
+        }
+
+        output.setLength(0);
+        if (!cleared) {
+            output.append(CLEAR_SCREEN);
+            cleared = true;
+        }
+        appendChangedCells();
+        lastFrameBytes = output.length();
+        if (lastFrameBytes > 0) {
+            out.print(output);
+            out.flush();
+        }
+
+        char[][] swap = previousFrame;
+        previousFrame = frame;
+        frame = swap;
+    }
+
+    /**
+     * @return the number of bytes written for the last rendered frame
+     */
+    public int getLastFrameBytes() {
+        return lastFrameBytes;
+    }
+
+    private void drawPanel(int slot, String pair, OrderBook book) {
+        int top = slot / panelsPerRow * panelHeight;
+        int left = slot % panelsPerRow * PANEL_WIDTH;
+
+        write(top, left, pair, PANEL_WIDTH - 1, false);
+
+        // best asks at the bottom of the ask ladder, closest to the spread
+        int asks = book.copyBestAsks(depth, topPrices, topVolumes);
+        float bestAsk = asks > 0 ? topPrices[0] : Float.NaN;
+        for (int i = 0; i < asks; i++) {
+            writeLevel(top + depth - i, left, "ask", topPrices[i], topVolumes[i]);
+        }
+
+        // best bids at the top of the bid ladder
+        int bids = book.copyBestBids(depth, topPrices, topVolumes);
+        for (int i = 0; i < bids; i++) {
+            writeLevel(top + depth + 2 + i, left, "bid", topPrices[i], topVolumes[i]);
+        }
+
+        String spread = asks == 0 || bids == 0 ? "-" : String.valueOf(bestAsk - topPrices[0]);
+        write(top + depth + 1, left, "spread " + spread, PANEL_WIDTH - 1, false);
+    }
+
+    private void writeLevel(int row, int left, String label, float price, float volume) {
+        write(row, left, label, 3, false);
+        write(row, left + 4, String.valueOf(price), PRICE_WIDTH, true);
+        write(row, left + 4 + PRICE_WIDTH + 1, String.valueOf(volume), VOLUME_WIDTH, true);
+    }
+
+    private void write(int row, int column, String text, int width, boolean alignRight) {
+        int length = Math.min(text.length(), width);
+        int start = alignRight ? column + width - length : column;
+        text.getChars(0, length, frame[row], start);
+    }
+
+    /**
+     * Append cursor moves and contents for the runs of changed cells. Runs separated by only a few unchanged cells
+     * are joined, rewriting the unchanged cells is cheaper than another cursor move.
+     */
+    private void appendChangedCells() {
+        for (int row = 0; row < frame.length; row++) {
+            char[] current = frame[row];
+            char[] previous = previousFrame[row];
+            int column = 0;
+            while (column < current.length) {
+                if (current[column] == previous[column]) {
+                    column++;
+                    continue;
+                }
+                int runStart = column;
+                int runEnd = column + 1;
+                int unchanged = 0;
+                for (int next = runEnd; next < current.length && unchanged <= MAX_UNCHANGED_GAP; next++) {
+                    if (current[next] == previous[next]) {
+                        unchanged++;
+                    } else {
+                        unchanged = 0;
+                        runEnd = next + 1;
+                    }
+                }
+                output.append(ESC).append('[').append(row + 1).append(';').append(runStart + 1).append('H');
+                output.append(current, runStart, runEnd - runStart);
+                column = runEnd;
+            }
+        }
+    }
+
+    private void resizeFrames() {
+        int rows = (panelSlots.size() + panelsPerRow - 1) / panelsPerRow * panelHeight;
+        if (frame.length == rows) {
+            return;
+        }
+        int columns = panelsPerRow * PANEL_WIDTH;
+        char[][] resizedPrevious = new char[rows][];
+        char[][] resized = new char[rows][];
+        for (int row = 0; row < rows; row++) {
+            // rows added to the grid are still blank on the terminal
+            resizedPrevious[row] = row < previousFrame.length ? previousFrame[row] : blankRow(columns);
+            resized[row] = new char[columns];
+        }
+        previousFrame = resizedPrevious;
+        frame = resized;
+    }
+
+    private static char[] blankRow(int columns) {
+        char[] row = new char[columns];
+        Arrays.fill(row, ' ');
+        return row;
+    }
+}
@@ -0,0 +1,251 @@
+package health;
+
+import static java.lang.String.format;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import javax.websocket.CloseReason;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import model.OrderBook;
+import websocket.IConnectionListener;
+import websocket.message.IFeedListener;
+
+/**
+ * Tracks the health of the feed: per pair message rate, last update age, crossed or locked books and processing lag,
+ * plus connection errors and closes. Counters are updated lock-free on the message handling thread; a watchdog
+ * periodically derives the rates and flags pairs without an update for longer than the staleness threshold.
+ * <p>
+ * Kraken sends a heartbeat every second on an idle connection, so a feed without any message is dead, while a pair
+ * without updates on a live feed is just a quiet market, or a stuck subscription.
+ * @see  <a href="https://docs.kraken.com/websockets/#message-heartbeat"/>
+ */
+public class FeedHealthMonitor implements IFeedListener, IConnectionListener {
+
+    private static final Logger LOGGER = LogManager.getLogger(FeedHealthMonitor.class);
+
+    private final long staleAfterNanos;
+    private final LongSupplier nanoClock;
+    private final Map<String, PairHealth> pairs = new ConcurrentHashMap<>();
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder connectionErrors = new LongAdder();
+    private final LongAdder connectionCloses = new LongAdder();
+    private volatile long lastMessageNanos;
+    private volatile boolean feedStale;
+
+    private long lastCheckNanos;
+    private ScheduledExecutorService watchdog;
+
+    /**
+     * @param staleAfterMillis - age of the last update after which the feed or a pair is flagged stale
+     */
+    public FeedHealthMonitor(long staleAfterMillis) {
+        this(staleAfterMillis, System::nanoTime);
+    }
+
+    FeedHealthMonitor(long staleAfterMillis, LongSupplier nanoClock) {
+        this.staleAfterNanos = TimeUnit.MILLISECONDS.toNanos(staleAfterMillis);
+        this.nanoClock = nanoClock;
+        this.lastMessageNanos = nanoClock.getAsLong();
+        this.lastCheckNanos = lastMessageNanos;
+    }
+
+    @Override
+    public void onMessage(long receivedNanos) {
+        messages.increment();
+        lastMessageNanos = receivedNanos;
+    }
+
+    @Override
+    public void onOrderBookUpdate(String pair, OrderBook book, long receivedNanos) {
+        long now = nanoClock.getAsLong();
+        PairHealth health = pairs.get(pair);
+        if (health == null) {
+            health = pairs.computeIfAbsent(pair, key -> new PairHealth(key, now));
+        }
+        health.messages.increment();
+        health.processingNanos.add(now - receivedNanos);
+        health.lastUpdateNanos = now;
+        boolean crossed = book.isCrossed();
+        if (crossed) {
+            health.crossedMessages.increment();
+        }
+        health.crossed = crossed;
+    }
+
+    @Override
+    public void onConnectionError(Throwable error) {
+        connectionErrors.increment();
+    }
+
+    @Override
+    public void onConnectionClose(CloseReason reason) {
+        connectionCloses.increment();
+    }
+
+    /**
+     * Start the watchdog on a daemon thread.
+     * @param intervalMillis - period of the checks, also the window of the message rates
+     */
+    public synchronized void start(long intervalMillis) {
+        if (watchdog != null) {
+            return;
+        }
+        watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "feed-health-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.scheduleAtFixedRate(this::check, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+            watchdog = null;
+        }
+    }
+
+    /**
+     * Derive the message rates since the previous check and flag stale pairs, logging every change of state.
+     */
+    synchronized void check() {
+        long now = nanoClock.getAsLong();
+        double elapsedSeconds = Math.max(now - lastCheckNanos, 1) / 1e9;
+        lastCheckNanos = now;
+
+        boolean stale = now - lastMessageNanos > staleAfterNanos;
+        if (stale != feedStale) {
+            logChange(stale, format("Feed %s, no message for %.1f s", stale ? "stale" : "recovered",
+                    seconds(now - lastMessageNanos)));
+            feedStale = stale;
+        }
+
+        for (PairHealth health : pairs.values()) {
+            long count = health.messages.sum();
+            health.messageRate = (count - health.lastCheckedMessages) / elapsedSeconds;
+            health.lastCheckedMessages = count;
+
+            long age = now - health.lastUpdateNanos;
+            stale = age > staleAfterNanos;
+            if (stale != health.stale) {
+                logChange(stale, format("Pair %s %s, last update %.1f s ago", health.pair,
+                        stale ? "stale" : "recovered", seconds(age)));
+                health.stale = stale;
+            }
+
+            boolean crossed = health.crossed;
+            if (crossed != health.reportedCrossed) {
+                logChange(crossed, format("Pair %s book %s", health.pair, crossed ? "crossed or locked" : "uncrossed"));
+                health.reportedCrossed = crossed;
+            }
+        }
+    }
+
+    /**
+     * A quiet pair on a live feed is not unhealthy, its staleness is only reported as a metric.
+     * @return true if the feed is not stale and no book is crossed
+     */
+    public boolean isHealthy() {
+        if (feedStale) {
+            return false;
+        }
+        for (PairHealth health : pairs.values()) {
+            if (health.crossed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isStale(String pair) {
+        PairHealth health = pairs.get(pair);
+        return health != null && health.stale;
+    }
+
+    /**
+     * Append all metrics in the Prometheus text exposition format.
+     * @see  <a href="https://prometheus.io/docs/instrumenting/exposition_formats/"/>
+     */
+    public void writeMetrics(StringBuilder out) {
+        long now = nanoClock.getAsLong();
+
+        metric(out, "orderbook_feed_messages_total", "counter", "Messages received, including events and heartbeats.");
+        out.append("orderbook_feed_messages_total ").append(messages.sum()).append('\n');
+        metric(out, "orderbook_feed_last_message_age_seconds", "gauge", "Time since the last message.");
+        out.append("orderbook_feed_last_message_age_seconds ").append(number(seconds(now - lastMessageNanos)))
+                .append('\n');
+        metric(out, "orderbook_feed_stale", "gauge", "1 if no message arrived within the staleness threshold.");
+        out.append("orderbook_feed_stale ").append(feedStale ? 1 : 0).append('\n');
+        metric(out, "orderbook_connection_errors_total", "counter", "WebSocket errors.");
+        out.append("orderbook_connection_errors_total ").append(connectionErrors.sum()).append('\n');
+        metric(out, "orderbook_connection_closes_total", "counter", "WebSocket closes.");
+        out.append("orderbook_connection_closes_total ").append(connectionCloses.sum()).append('\n');
+
+        metric(out, "orderbook_messages_total", "counter", "Book messages applied per pair.");
+        for (PairHealth health : pairs.values()) {
+            pairSample(out, "orderbook_messages_total", health, String.valueOf(health.messages.sum()));
+        }
+        metric(out, "orderbook_message_rate", "gauge", "Book messages per second over the last watchdog interval.");
+        for (PairHealth health : pairs.values()) {
+            pairSample(out, "orderbook_message_rate", health, number(health.messageRate));
+        }
+        metric(out, "orderbook_last_update_age_seconds", "gauge", "Time since the last book update per pair.");
+        for (PairHealth health : pairs.values()) {
+            pairSample(out, "orderbook_last_update_age_seconds", health,
+                    number(seconds(now - health.lastUpdateNanos)));
+        }
+        metric(out, "orderbook_stale", "gauge", "1 if the pair had no update within the staleness threshold.");
+        for (PairHealth health : pairs.values()) {
+            pairSample(out, "orderbook_stale", health, health.stale ? "1" : "0");
+        }
+        metric(out, "orderbook_crossed", "gauge", "1 if the best bid is at or above the best ask.");
+        for (PairHealth health : pairs.values()) {
+            pairSample(out, "orderbook_crossed", health, health.crossed ? "1" : "0");
+        }
+        metric(out, "orderbook_crossed_messages_total", "counter", "Book messages leaving the book crossed or locked.");
+        for (PairHealth health : pairs.values()) {
+            pairSample(out, "orderbook_crossed_messages_total", health, String.valueOf(health.crossedMessages.sum()));
+        }
+        metric(out, "orderbook_processing_seconds", "summary", "Time from receiving a message to the updated book.");
+        for (PairHealth health : pairs.values()) {
+            pairSample(out, "orderbook_processing_seconds_sum", health,
+                    number(seconds(health.processingNanos.sum())));
+            pairSample(out, "orderbook_processing_seconds_count", health, String.valueOf(health.messages.sum()));
+        }
+    }
+
+    private static void metric(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void pairSample(StringBuilder out, String name, PairHealth health, String value) {
+        out.append(name).append("{pair=\"").append(health.label).append("\"} ").append(value).append('\n');
+    }
+
+    private static void logChange(boolean unhealthy, String message) {
+        if (unhealthy) {
+            LOGGER.warn(message);
+        } else {
+            LOGGER.info(message);
+        }
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+}
@@ -0,0 +1,81 @@
+package health;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded JDK HTTP server exposing the feed health: {@code /metrics} in the Prometheus text format for scraping,
+ * and {@code /health} answering 200 or 503 for liveness checks and alerting. Listens on the loopback interface
+ * unless given another bind address.
+ */
+public class MetricsHttpServer {
+
+    private static final Logger LOGGER = LogManager.getLogger(MetricsHttpServer.class);
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final String TEXT_CONTENT_TYPE = "text/plain; charset=utf-8";
+
+    private final HttpServer server;
+    private final FeedHealthMonitor monitor;
+
+    /**
+     * @param port - the loopback port to listen on, 0 for any free port
+     */
+    public MetricsHttpServer(int port, FeedHealthMonitor monitor) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port, monitor);
+    }
+
+    /**
+     * @param bindAddress - the address to listen on, e.g. the wildcard address to be reachable from other hosts
+     * @param port - the port to listen on, 0 for any free port
+     */
+    public MetricsHttpServer(InetAddress bindAddress, int port, FeedHealthMonitor monitor) throws IOException {
+        this.monitor = monitor;
+        this.server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        server.createContext("/metrics", this::handleMetrics);
+        server.createContext("/health", this::handleHealth);
+    }
+
+    public void start() {
+        server.start();
+        LOGGER.info("Serving metrics on " + server.getAddress());
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        StringBuilder metrics = new StringBuilder(4096);
+        monitor.writeMetrics(metrics);
+        respond(exchange, 200, PROMETHEUS_CONTENT_TYPE, metrics.toString());
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        boolean healthy = monitor.isHealthy();
+        respond(exchange, healthy ? 200 : 503, TEXT_CONTENT_TYPE, healthy ? "OK\n" : "UNHEALTHY\n");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body)
+            throws IOException {
+        byte[] bytes = body.getBytes(UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package health;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Health counters of one pair, written lock-free by the thread handling the messages and read by the watchdog and
+ * the metrics endpoint.
+ */
+class PairHealth {
+
+    final String pair;
+    // the pair as a Prometheus label value
+    final String label;
+    final LongAdder messages = new LongAdder();
+    final LongAdder crossedMessages = new LongAdder();
+    final LongAdder processingNanos = new LongAdder();
+    volatile long lastUpdateNanos;
+    volatile boolean crossed;
+
+    // maintained by the watchdog
+    volatile double messageRate;
+    volatile boolean stale;
+    long lastCheckedMessages;
+    boolean reportedCrossed;
+
+    PairHealth(String pair, long createdNanos) {
+        this.pair = pair;
+        this.label = escapeLabelValue(pair);
+        this.lastUpdateNanos = createdNanos;
+    }
+
+    /**
+     * Escape backslash, double quote and line feed, the characters a Prometheus label value cannot hold as is.
+     */
+    static String escapeLabelValue(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char next = value.charAt(i);
+            switch (next) {
+            case '\\':
+                escaped.append("\\\\");
+                break;
+            case '"':
+                escaped.append("\\\"");
+                break;
+            case '\n':
+                escaped.append("\\n");
+                break;
+            default:
+                escaped.append(next);
+            }
+        }
+        return escaped.toString();
+    }
+}
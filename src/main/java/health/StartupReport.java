@@ -0,0 +1,114 @@
+package health;
+
+import static java.lang.String.format;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import model.OrderBook;
+import websocket.message.IFeedListener;
+
+/**
+ * Reports how fast the process gets live: the startup phases before the subscription, e.g. warm-up and connect, the
+ * time from sending the subscription to the first book, and the processing latency distribution of the first book
+ * messages, which run on whatever the JIT compiled so far. Comparing the reports of runs with and without warm-up or
+ * a class data sharing archive tells what each feature buys.
+ */
+public class StartupReport implements IFeedListener {
+
+    private static final Logger LOGGER = LogManager.getLogger(StartupReport.class);
+
+    private final IFeedListener feedListener;
+    private final String features;
+    private final long[] latencies;
+    private final Runnable onComplete;
+    private final StringBuilder phases = new StringBuilder();
+    private int recorded;
+    private volatile long subscribedNanos = System.nanoTime();
+    private long firstBookMillis = -1;
+
+    /**
+     * @param feedListener - the listener to pass every notification to
+     * @param features - the startup features in use, as reported
+     * @param messages - the number of first book messages measured
+     * @param onComplete - called once the report is logged
+     */
+    public StartupReport(IFeedListener feedListener, String features, int messages, Runnable onComplete) {
+        this.feedListener = feedListener;
+        this.features = features;
+        this.latencies = new long[messages];
+        this.onComplete = onComplete;
+    }
+
+    /**
+     * Record a startup phase completed before the subscription, reported as is.
+     * @param phase - the name of the phase, e.g. "warm-up"
+     * @param millis - the duration of the phase
+     */
+    public synchronized void phaseDone(String phase, long millis) {
+        phases.append(", ").append(phase).append(' ').append(millis).append(" ms");
+    }
+
+    /**
+     * Mark the subscription as sent, the time to the first book is measured from here rather than from the creation
+     * of the report.
+     */
+    public void subscriptionSent() {
+        subscribedNanos = System.nanoTime();
+    }
+
+    @Override
+    public void onMessage(long receivedNanos) {
+        feedListener.onMessage(receivedNanos);
+    }
+
+    @Override
+    public void onOrderBookUpdate(String pair, OrderBook book, long receivedNanos) {
+        if (recorded < latencies.length) {
+            latencies[recorded++] = System.nanoTime() - receivedNanos;
+            if (firstBookMillis < 0) {
+                firstBookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - subscribedNanos);
+                LOGGER.info(format("First book %d ms after the subscription [%s%s]", firstBookMillis, features,
+                        phases()));
+            }
+            if (recorded == latencies.length) {
+                LOGGER.info(summary());
+                onComplete.run();
+            }
+        }
+        feedListener.onOrderBookUpdate(pair, book, receivedNanos);
+    }
+
+    /**
+     * @return the summary of the messages recorded so far
+     */
+    public String summary() {
+        long[] sorted = Arrays.copyOf(latencies, recorded);
+        Arrays.sort(sorted);
+        long total = 0;
+        for (long latency : sorted) {
+            total += latency;
+        }
+        return format(Locale.ROOT,
+                "First %d book messages [%s%s]: first book %d ms after the subscription, latency mean %.1f us, "
+                        + "p50 %.1f us, p99 %.1f us, max %.1f us",
+                recorded, features, phases(), firstBookMillis, recorded == 0 ? 0 : total / 1e3 / recorded,
+                percentile(sorted, 0.5), percentile(sorted, 0.99), percentile(sorted, 1));
+    }
+
+    private synchronized String phases() {
+        return phases.toString();
+    }
+
+    private static double percentile(long[] sorted, double rank) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(rank * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e3;
+    }
+}
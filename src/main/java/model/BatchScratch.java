@@ -0,0 +1,43 @@
+package model;
+
+/**
+ * Staging space for a batch of price point updates and its sort keys. A batch is staged and merged within a single
+ * side operation, so every side updated from a thread shares that thread's scratch instead of keeping its own.
+ */
+final class BatchScratch {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final ThreadLocal<BatchScratch> SCRATCH = ThreadLocal.withInitial(BatchScratch::new);
+
+    float[] prices = new float[INITIAL_CAPACITY];
+    float[] volumes = new float[INITIAL_CAPACITY];
+    long[] keys = new long[INITIAL_CAPACITY];
+    int size;
+
+    private BatchScratch() {
+    }
+
+    /**
+     * @return the scratch of the calling thread, emptied
+     */
+    static BatchScratch forCurrentThread() {
+        BatchScratch scratch = SCRATCH.get();
+        scratch.size = 0;
+        return scratch;
+    }
+
+    void ensureCapacity(int capacity) {
+        if (prices.length < capacity) {
+            int newCapacity = Math.max(capacity, prices.length * 2);
+            prices = new float[newCapacity];
+            volumes = new float[newCapacity];
+            keys = new long[newCapacity];
+        }
+    }
+
+    void stage(float price, float volume) {
+        prices[size] = price;
+        volumes[size] = volume;
+        size++;
+    }
+}
@@ -0,0 +1,61 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * On-heap price point storage backed by two parallel float arrays.
+ */
+final class HeapPriceLevels implements PriceLevels {
+
+    private final float[] prices;
+    private final float[] volumes;
+
+    HeapPriceLevels(int capacity) {
+        prices = new float[capacity];
+        volumes = new float[capacity];
+    }
+
+    @Override
+    public int capacity() {
+        return prices.length;
+    }
+
+    @Override
+    public float price(int index) {
+        return prices[index];
+    }
+
+    @Override
+    public float volume(int index) {
+        return volumes[index];
+    }
+
+    @Override
+    public void set(int index, float price, float volume) {
+        prices[index] = price;
+        volumes[index] = volume;
+    }
+
+    @Override
+    public void copy(int from, PriceLevels target, int to, int length) {
+        if (target instanceof HeapPriceLevels) {
+            HeapPriceLevels heapTarget = (HeapPriceLevels) target;
+            System.arraycopy(prices, from, heapTarget.prices, to, length);
+            System.arraycopy(volumes, from, heapTarget.volumes, to, length);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            target.set(to + i, prices[from + i], volumes[from + i]);
+        }
+    }
+
+    @Override
+    public int search(int size, float price) {
+        return Arrays.binarySearch(prices, 0, size, price);
+    }
+
+    @Override
+    public void release() {
+        // left to the garbage collector
+    }
+}
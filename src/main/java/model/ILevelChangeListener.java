@@ -0,0 +1,19 @@
+package model;
+
+/**
+ * A contract to fulfill by a class that follows the price points of an order book change by change, e.g. to maintain
+ * an aggregate incrementally instead of recomputing it from the whole book.
+ */
+@FunctionalInterface
+public interface ILevelChangeListener {
+
+    /**
+     * Called on the thread updating the book for every price point added, changed or removed. The change is still
+     * being applied, the listener must not update any order book itself.
+     * @param ask - true for an ask price point, false for a bid
+     * @param price - the price of the price point
+     * @param previousVolume - the volume before the change, 0 if the price point is added
+     * @param volume - the volume after the change, 0 if the price point is removed
+     */
+    void onLevelChange(boolean ask, float price, float previousVolume, float volume);
+}
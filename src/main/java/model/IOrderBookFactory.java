@@ -0,0 +1,13 @@
+package model;
+
+/**
+ * A contract to fulfill by a class that provides the storage of the order book for a pair.
+ */
+public interface IOrderBookFactory {
+
+    /**
+     * @param pair - order book pair, e.g. "BTC/USD"
+     * @return a new empty order book for the pair, replacing any book previously created for it
+     */
+    OrderBook createOrderBook(String pair);
+}
@@ -0,0 +1,66 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Order book storage keeping the price points of every book off-heap, in direct slabs shared by all pairs, so the
+ * heap and GC pause times stay flat as pairs and depth are added. Books are addressed by a dense pair id and expose
+ * the same API as on-heap books.
+ * <p>
+ * A replaced book keeps its storage as long as anyone can still read it, its regions go back to the pool once the
+ * garbage collector finds them unreachable.
+ */
+public class OffHeapOrderBookStore implements IOrderBookFactory {
+
+    private final OffHeapSlabArena arena;
+    private final Map<String, Integer> pairIds = new HashMap<>();
+    private final List<OrderBook> books = new ArrayList<>();
+
+    public OffHeapOrderBookStore() {
+        this(OffHeapSlabArena.DEFAULT_SLAB_BYTES);
+    }
+
+    public OffHeapOrderBookStore(int slabBytes) {
+        this.arena = new OffHeapSlabArena(slabBytes);
+    }
+
+    @Override
+    public synchronized OrderBook createOrderBook(String pair) {
+        int pairId = getPairId(pair);
+        OrderBook book = new OrderBook(arena);
+        books.set(pairId, book);
+        return book;
+    }
+
+    /**
+     * @param pair - order book pair, e.g. "BTC/USD"
+     * @return the id of the pair, assigned on first use
+     */
+    public synchronized int getPairId(String pair) {
+        Integer pairId = pairIds.get(pair);
+        if (pairId == null) {
+            pairId = books.size();
+            pairIds.put(pair, pairId);
+            books.add(null);
+        }
+        return pairId;
+    }
+
+    /**
+     * @param pairId - id of the pair as returned by {@link #getPairId(String)}
+     * @return the book of the pair or null if none was created yet
+     */
+    public synchronized OrderBook getOrderBook(int pairId) {
+        return books.get(pairId);
+    }
+
+    /**
+     * @return the off-heap bytes reserved for all books
+     */
+    public long getReservedBytes() {
+        return arena.getReservedBytes();
+    }
+}
@@ -0,0 +1,95 @@
+package model;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+
+/**
+ * Off-heap price point storage: a region of a direct slab holding interleaved (price, volume) floats, so moving a
+ * price point is a single long copy.
+ * <p>
+ * The region goes back to the arena when released, or at the latest once the storage is unreachable.
+ */
+final class OffHeapPriceLevels implements PriceLevels {
+
+    static final int LEVEL_BYTES = 8;
+    private static final int VOLUME_OFFSET = 4;
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final ByteBuffer region;
+    private final int capacity;
+    private final Cleaner.Cleanable release;
+
+    OffHeapPriceLevels(OffHeapSlabArena arena, ByteBuffer region, int capacity) {
+        this.region = region;
+        this.capacity = capacity;
+        // must not reach this storage, or it never becomes unreachable
+        this.release = CLEANER.register(this, () -> arena.release(region, capacity));
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public float price(int index) {
+        return region.getFloat(index * LEVEL_BYTES);
+    }
+
+    @Override
+    public float volume(int index) {
+        return region.getFloat(index * LEVEL_BYTES + VOLUME_OFFSET);
+    }
+
+    @Override
+    public void set(int index, float price, float volume) {
+        region.putFloat(index * LEVEL_BYTES, price);
+        region.putFloat(index * LEVEL_BYTES + VOLUME_OFFSET, volume);
+    }
+
+    @Override
+    public void copy(int from, PriceLevels target, int to, int length) {
+        if (!(target instanceof OffHeapPriceLevels)) {
+            for (int i = 0; i < length; i++) {
+                target.set(to + i, price(from + i), volume(from + i));
+            }
+            return;
+        }
+
+        ByteBuffer targetRegion = ((OffHeapPriceLevels) target).region;
+        if (target == this && to > from) {
+            // overlapping move to the right, copy from the end
+            for (int i = length - 1; i >= 0; i--) {
+                targetRegion.putLong((to + i) * LEVEL_BYTES, region.getLong((from + i) * LEVEL_BYTES));
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                targetRegion.putLong((to + i) * LEVEL_BYTES, region.getLong((from + i) * LEVEL_BYTES));
+            }
+        }
+    }
+
+    @Override
+    public int search(int size, float price) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = Float.compare(price(middle), price);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    @Override
+    public void release() {
+        // runs at most once
+        release.clean();
+    }
+}
@@ -0,0 +1,67 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands out off-heap price point storage carved from large direct slabs. Region capacities are rounded up to a
+ * power of two and released regions are pooled per capacity, so a side growing out of its region leaves it for the
+ * next side of that size instead of leaking slab space.
+ */
+class OffHeapSlabArena implements PriceLevelsAllocator {
+
+    static final int DEFAULT_SLAB_BYTES = 1 << 20;
+
+    private final int slabBytes;
+    private final Map<Integer, Deque<ByteBuffer>> releasedRegions = new HashMap<>();
+
+    private ByteBuffer slab;
+    private long reservedBytes;
+
+    OffHeapSlabArena(int slabBytes) {
+        this.slabBytes = slabBytes;
+    }
+
+    @Override
+    public synchronized PriceLevels allocate(int capacity) {
+        int regionCapacity = Math.max(1, Integer.highestOneBit(Math.max(1, capacity - 1)) << 1);
+        Deque<ByteBuffer> released = releasedRegions.get(regionCapacity);
+        ByteBuffer region = released == null || released.isEmpty()
+                ? carve(regionCapacity * OffHeapPriceLevels.LEVEL_BYTES)
+                : released.pop();
+        return new OffHeapPriceLevels(this, region, regionCapacity);
+    }
+
+    synchronized void release(ByteBuffer region, int capacity) {
+        releasedRegions.computeIfAbsent(capacity, key -> new ArrayDeque<>()).push(region);
+    }
+
+    /**
+     * @return the off-heap bytes reserved by the arena so far
+     */
+    synchronized long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    private ByteBuffer carve(int bytes) {
+        if (bytes > slabBytes) {
+            // larger than a slab, give it a dedicated one
+            reservedBytes += bytes;
+            return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        }
+        if (slab == null || slab.remaining() < bytes) {
+            // the tail of the previous slab is abandoned, regions are power of two sized so it stays small
+            slab = ByteBuffer.allocateDirect(slabBytes);
+            reservedBytes += slabBytes;
+        }
+        int start = slab.position();
+        slab.limit(start + bytes);
+        ByteBuffer region = slab.slice().order(ByteOrder.nativeOrder());
+        slab.limit(slab.capacity()).position(start + bytes);
+        return region;
+    }
+}
@@ -1,26 +1,58 @@
 package model;
 
-import static java.util.Collections.reverseOrder;
-
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
-import java.util.TreeMap;
 
 /**
  * Class to hold order book and perform relevant operations such as add/update/remove asks and bids.
+ * <p>
+ * Multi level updates are applied as a batch: the batch is sorted once and merged into the side in a single linear
+ * pass, so a large frame costs O(n + m) rather than a tree lookup per price point.
  */
 public class OrderBook {
 
-    private final SortedMap<Float, Float> asks;
-    private final SortedMap<Float, Float> bids;
+    private final OrderBookSide asks;
+    private final OrderBookSide bids;
+    private final List<ILevelChangeListener> listeners = new ArrayList<>();
 
-    public OrderBook(Map<Float, Float> asks, Map<Float, Float> bids) {
+    public OrderBook() {
+        this(HeapPriceLevels::new);
+    }
+
+    OrderBook(PriceLevelsAllocator allocator) {
         //from highest ask to lowest bid
-        this.asks = new TreeMap<>(reverseOrder());
-        this.bids = new TreeMap<>();
-        this.asks.putAll(asks);
-        this.bids.putAll(bids);
+        this.asks = new OrderBookSide(true, allocator);
+        this.bids = new OrderBookSide(false, allocator);
+    }
+
+    public OrderBook(Map<Float, Float> asks, Map<Float, Float> bids) {
+        this();
+        this.asks.load(asks);
+        this.bids.load(bids);
+    }
+
+    /**
+     * Replace the order book asks with snapshot price points.
+     * @param prices - the price of each price point
+     * @param volumes - the volume of each price point
+     * @param count - the number of price points in the arrays
+     * Note: Kraken publishes snapshot levels already sorted, these are loaded without any per level lookup.
+     */
+    public void loadAsks(float[] prices, float[] volumes, int count) {
+        asks.load(prices, volumes, count);
+    }
+
+    /**
+     * Replace the order book bids with snapshot price points.
+     * @param prices - the price of each price point
+     * @param volumes - the volume of each price point
+     * @param count - the number of price points in the arrays
+     * Note: Kraken publishes snapshot levels already sorted, these are loaded without any per level lookup.
+     */
+    public void loadBids(float[] prices, float[] volumes, int count) {
+        bids.load(prices, volumes, count);
     }
 
     /**
@@ -30,15 +62,17 @@ public class OrderBook {
      * @see  <a href="https://support.kraken.com/hc/en-us/articles/360027821131-How-to-maintain-a-valid-order-book"/>
      */
     public void updateAsks(List<OrderBookElement> asksUpdate) {
-        for (OrderBookElement orderBookElement : asksUpdate) {
-            if (orderBookElement.getVolume() == 0) {
-                // remove a price point due to size being 0
-                asks.remove(orderBookElement.getPrice());
-            } else {
-                // insert the new price point according to the natural order
-                asks.put(orderBookElement.getPrice(), orderBookElement.getVolume());
-            }
-        }
+        asks.update(asksUpdate);
+    }
+
+    /**
+     * Update order book asks with a batch of (price, volume) combos, a later combo for the same price wins.
+     * @param prices - the price of each updated price point
+     * @param volumes - the volume of each updated price point, a volume 0 means removal
+     * @param count - the number of price points in the arrays
+     */
+    public void updateAsks(float[] prices, float[] volumes, int count) {
+        asks.update(prices, volumes, count);
     }
 
     /**
@@ -48,17 +82,106 @@ public class OrderBook {
      * @see  <a href="https://support.kraken.com/hc/en-us/articles/360027821131-How-to-maintain-a-valid-order-book"/>
      */
     public void updateBids(List<OrderBookElement> bidsUpdate) {
-        for (OrderBookElement orderBookElement : bidsUpdate) {
-            if (orderBookElement.getVolume() == 0) {
-                // remove a price point due to size being 0
-                bids.remove(orderBookElement.getPrice());
-            } else {
-                // insert the new price point according to the natural order
-                bids.put(orderBookElement.getPrice(), orderBookElement.getVolume());
-            }
+        bids.update(bidsUpdate);
+    }
+
+    /**
+     * Update order book bids with a batch of (price, volume) combos, a later combo for the same price wins.
+     * @param prices - the price of each updated price point
+     * @param volumes - the volume of each updated price point, a volume 0 means removal
+     * @param count - the number of price points in the arrays
+     */
+    public void updateBids(float[] prices, float[] volumes, int count) {
+        bids.update(prices, volumes, count);
+    }
+
+    /**
+     * Truncate both sides of the order book to the given depth by dropping the worst price levels.
+     * @param depth - the subscribed book depth
+     * Note: As per Kraken WebSocket API - levels falling out of scope are not removed by the feed, the client
+     * is expected to truncate the book to the subscribed depth after applying updates.
+     * @see  <a href="https://support.kraken.com/hc/en-us/articles/360027821131-How-to-maintain-a-valid-order-book"/>
+     */
+    public void truncate(int depth) {
+        asks.truncate(depth);
+        bids.truncate(depth);
+    }
+
+    /**
+     * @return the lowest ask price or null if there are no asks
+     */
+    public Float getBestAsk() {
+        return asks.isEmpty() ? null : asks.lastKey();
+    }
+
+    /**
+     * @return the highest bid price or null if there are no bids
+     */
+    public Float getBestBid() {
+        return bids.isEmpty() ? null : bids.lastKey();
+    }
+
+    /**
+     * Follow every price point change of the book. The current price points are replayed to the listener as
+     * additions first, so an aggregate built from the notifications matches the book from the start.
+     * @param listener - called on the thread updating the book
+     */
+    public void addLevelChangeListener(ILevelChangeListener listener) {
+        replay(true, asks, listener);
+        replay(false, bids, listener);
+        listeners.add(listener);
+        if (listeners.size() == 1) {
+            asks.setListener(this::fireLevelChange);
+            bids.setListener(this::fireLevelChange);
+        }
+    }
+
+    public void removeLevelChangeListener(ILevelChangeListener listener) {
+        listeners.remove(listener);
+        if (listeners.isEmpty()) {
+            asks.setListener(null);
+            bids.setListener(null);
+        }
+    }
+
+    private void fireLevelChange(boolean ask, float price, float previousVolume, float volume) {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onLevelChange(ask, price, previousVolume, volume);
         }
     }
 
+    private static void replay(boolean ask, OrderBookSide side, ILevelChangeListener listener) {
+        for (Map.Entry<Float, Float> level : side.entrySet()) {
+            listener.onLevelChange(ask, level.getKey(), 0, level.getValue());
+        }
+    }
+
+    /**
+     * Copy the lowest asks, lowest first, without boxing.
+     * @param depth - the maximum number of price points to copy
+     * @return the number of price points copied
+     */
+    public int copyBestAsks(int depth, float[] prices, float[] volumes) {
+        return asks.copyBest(depth, prices, volumes);
+    }
+
+    /**
+     * Copy the highest bids, highest first, without boxing.
+     * @param depth - the maximum number of price points to copy
+     * @return the number of price points copied
+     */
+    public int copyBestBids(int depth, float[] prices, float[] volumes) {
+        return bids.copyBest(depth, prices, volumes);
+    }
+
+    /**
+     * @return true if the best bid is at or above the best ask, i.e. the book is crossed or locked, which a valid book
+     * never is; false if either side is empty
+     */
+    public boolean isCrossed() {
+        return !asks.isEmpty() && !bids.isEmpty() && bids.bestPrice() >= asks.bestPrice();
+    }
+
     public SortedMap<Float, Float> getAsks() {
         return asks;
     }
@@ -0,0 +1,555 @@
+package model;
+
+import static java.util.Collections.reverseOrder;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Objects;
+import java.util.SortedMap;
+
+/**
+ * One side (asks or bids) of an order book. Price points are kept sorted by ascending price in a {@link PriceLevels}
+ * storage, on or off heap. A small batch of updates is applied in place with a binary search per price point, a large
+ * one by sorting the batch once and merging it with the existing levels in a single linear pass, and a sorted
+ * snapshot is loaded with a plain copy.
+ * <p>
+ * Readers get a read-only {@link SortedMap} view in the side order: asks from highest to lowest, bids from lowest to
+ * highest, i.e. the best price point is always the last key. Range views are live views over the same storage.
+ */
+class OrderBookSide extends AbstractMap<Float, Float> implements SortedMap<Float, Float> {
+
+    private static final int INITIAL_CAPACITY = 16;
+    // batches up to this size are applied level by level in place, larger ones are sorted and merged
+    private static final int IN_PLACE_BATCH_LIMIT = 32;
+
+    private final boolean descending;
+    private final PriceLevelsAllocator allocator;
+
+    // live price points, ascending by price
+    private PriceLevels levels;
+    private int size;
+
+    // merge target, swapped with the live price points once a batch is merged
+    private PriceLevels mergedLevels;
+
+    // notified of every price point change, null when nobody follows the side
+    private ILevelChangeListener listener;
+
+    OrderBookSide(boolean descending, PriceLevelsAllocator allocator) {
+        this.descending = descending;
+        this.allocator = allocator;
+        this.levels = allocator.allocate(INITIAL_CAPACITY);
+        this.mergedLevels = allocator.allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Replace all price points with the given levels.
+     */
+    void load(Map<Float, Float> snapshot) {
+        BatchScratch batch = BatchScratch.forCurrentThread();
+        batch.ensureCapacity(snapshot.size());
+        for (Map.Entry<Float, Float> level : snapshot.entrySet()) {
+            batch.stage(level.getKey(), level.getValue());
+        }
+        load(batch.prices, batch.volumes, batch.size);
+    }
+
+    /**
+     * Replace all price points with the given snapshot levels. Levels already sorted by price in either direction,
+     * as Kraken publishes them, are copied as they are; anything else goes through the batch merge.
+     */
+    void load(float[] levelPrices, float[] levelVolumes, int count) {
+        notifyRemoved(0, size);
+        int direction = sortDirection(levelPrices, count);
+        if (direction == 0) {
+            size = 0;
+            update(levelPrices, levelVolumes, count);
+            return;
+        }
+
+        size = 0;
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            int level = direction > 0 ? i : count - 1 - i;
+            if (levelVolumes[level] != 0) {
+                levels.set(size++, levelPrices[level], levelVolumes[level]);
+                if (listener != null) {
+                    listener.onLevelChange(descending, levelPrices[level], 0, levelVolumes[level]);
+                }
+            }
+        }
+    }
+
+    void update(List<OrderBookElement> updates) {
+        BatchScratch batch = BatchScratch.forCurrentThread();
+        batch.ensureCapacity(updates.size());
+        for (OrderBookElement level : updates) {
+            batch.stage(level.getPrice(), level.getVolume());
+        }
+        applyBatch(batch);
+    }
+
+    void update(float[] levelPrices, float[] levelVolumes, int count) {
+        BatchScratch batch = BatchScratch.forCurrentThread();
+        if (levelPrices != batch.prices) {
+            batch.ensureCapacity(count);
+            System.arraycopy(levelPrices, 0, batch.prices, 0, count);
+            System.arraycopy(levelVolumes, 0, batch.volumes, 0, count);
+        }
+        batch.size = count;
+        applyBatch(batch);
+    }
+
+    /**
+     * Drop the worst price points so that at most depth remain.
+     */
+    void truncate(int depth) {
+        if (size <= depth) {
+            return;
+        }
+        if (!descending) {
+            // the worst bids are the lowest prices at the head
+            notifyRemoved(0, size - depth);
+            levels.copy(size - depth, levels, 0, depth);
+        } else {
+            notifyRemoved(depth, size);
+        }
+        size = depth;
+    }
+
+    /**
+     * @return the best price, without boxing; the side must not be empty
+     */
+    float bestPrice() {
+        return levels.price(storageIndex(size - 1));
+    }
+
+    /**
+     * Copy the best price points, best first.
+     * @return the number of price points copied, at most depth
+     */
+    int copyBest(int depth, float[] prices, float[] volumes) {
+        int count = Math.min(depth, size);
+        for (int i = 0; i < count; i++) {
+            // the best price point is the last of the side order
+            int index = storageIndex(size - 1 - i);
+            prices[i] = levels.price(index);
+            volumes[i] = levels.volume(index);
+        }
+        return count;
+    }
+
+    /**
+     * @param listener - notified of every following price point change, null to stop notifications
+     */
+    void setListener(ILevelChangeListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public Comparator<? super Float> comparator() {
+        return descending ? reverseOrder() : null;
+    }
+
+    @Override
+    public SortedMap<Float, Float> subMap(Float fromKey, Float toKey) {
+        return new RangeView(fromKey, toKey);
+    }
+
+    @Override
+    public SortedMap<Float, Float> headMap(Float toKey) {
+        return new RangeView(null, Objects.requireNonNull(toKey));
+    }
+
+    @Override
+    public SortedMap<Float, Float> tailMap(Float fromKey) {
+        return new RangeView(Objects.requireNonNull(fromKey), null);
+    }
+
+    @Override
+    public Float firstKey() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return levels.price(storageIndex(0));
+    }
+
+    @Override
+    public Float lastKey() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return levels.price(storageIndex(size - 1));
+    }
+
+    @Override
+    public Float get(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : levels.volume(index);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<Float, Float>> entrySet() {
+        return new EntrySet(null, null);
+    }
+
+    /**
+     * Apply the staged batch in place in arrival order when small, so that a few price points do not copy the whole
+     * side, otherwise with a single sorted merge.
+     */
+    private void applyBatch(BatchScratch batch) {
+        if (batch.size <= IN_PLACE_BATCH_LIMIT) {
+            for (int i = 0; i < batch.size; i++) {
+                applyLevel(batch.prices[i], batch.volumes[i]);
+            }
+        } else {
+            sortBatch(batch);
+            mergeBatch(batch);
+        }
+        batch.size = 0;
+    }
+
+    /**
+     * Binary search and shift in place.
+     */
+    private void applyLevel(float price, float volume) {
+        int index = levels.search(size, price);
+        if (listener != null) {
+            float previousVolume = index >= 0 ? levels.volume(index) : 0;
+            if (previousVolume != volume) {
+                listener.onLevelChange(descending, price, previousVolume, volume);
+            }
+        }
+        if (index >= 0) {
+            if (volume == 0) {
+                // remove a price point due to size being 0
+                levels.copy(index + 1, levels, index, size - index - 1);
+                size--;
+            } else {
+                levels.set(index, price, volume);
+            }
+        } else if (volume != 0) {
+            int insertion = -index - 1;
+            ensureCapacity(size + 1);
+            levels.copy(insertion, levels, insertion + 1, size - insertion);
+            levels.set(insertion, price, volume);
+            size++;
+        }
+    }
+
+    /**
+     * Sort the staged batch by price, keeping the arrival order of repeated price points: the key holds the
+     * order-preserving bits of the price in the high word and the staging index in the low word.
+     */
+    private static void sortBatch(BatchScratch batch) {
+        long[] keys = batch.keys;
+        for (int i = 0; i < batch.size; i++) {
+            keys[i] = ((long) sortableBits(batch.prices[i]) << 32) | i;
+        }
+        Arrays.sort(keys, 0, batch.size);
+    }
+
+    private void mergeBatch(BatchScratch batch) {
+        ensureMergeCapacity(size + batch.size);
+        long[] keys = batch.keys;
+        int existing = 0;
+        int merged = 0;
+        for (int i = 0; i < batch.size; i++) {
+            // a price point repeated within the batch - only its latest update counts
+            if (i + 1 < batch.size && (keys[i + 1] >> 32) == (keys[i] >> 32)) {
+                continue;
+            }
+            int staged = (int) keys[i];
+            float price = batch.prices[staged];
+            float volume = batch.volumes[staged];
+
+            // copy the untouched run of price points below the updated one
+            int runStart = existing;
+            while (existing < size && Float.compare(levels.price(existing), price) < 0) {
+                existing++;
+            }
+            levels.copy(runStart, mergedLevels, merged, existing - runStart);
+            merged += existing - runStart;
+
+            float previousVolume = 0;
+            if (existing < size && Float.compare(levels.price(existing), price) == 0) {
+                // replaced or removed
+                previousVolume = levels.volume(existing);
+                existing++;
+            }
+            // a volume 0 means removal
+            if (volume != 0) {
+                mergedLevels.set(merged++, price, volume);
+            }
+            if (listener != null && previousVolume != volume) {
+                listener.onLevelChange(descending, price, previousVolume, volume);
+            }
+        }
+        levels.copy(existing, mergedLevels, merged, size - existing);
+        merged += size - existing;
+
+        PriceLevels swap = levels;
+        levels = mergedLevels;
+        mergedLevels = swap;
+        size = merged;
+    }
+
+    /**
+     * Notify the removal of the price points between the given storage indexes.
+     */
+    private void notifyRemoved(int from, int to) {
+        if (listener == null) {
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            listener.onLevelChange(descending, levels.price(i), levels.volume(i), 0);
+        }
+    }
+
+    private int indexOf(Object key) {
+        if (!(key instanceof Float)) {
+            return -1;
+        }
+        int index = levels.search(size, (Float) key);
+        return index < 0 ? -1 : index;
+    }
+
+    private int storageIndex(int viewIndex) {
+        return descending ? size - 1 - viewIndex : viewIndex;
+    }
+
+    /**
+     * @return the view index where a range from the key, inclusive, starts; 0 for an open bound
+     */
+    private int rangeStart(Float fromKey) {
+        return fromKey == null ? 0 : viewIndexOf(fromKey);
+    }
+
+    /**
+     * @return the view index where a range to the key, exclusive, ends; size for an open bound
+     */
+    private int rangeEnd(Float toKey) {
+        return toKey == null ? size : viewIndexOf(toKey);
+    }
+
+    /**
+     * @return the view index of the first price point not ordered before the key in the side order, size if none
+     */
+    private int viewIndexOf(float key) {
+        int index = levels.search(size, key);
+        if (descending) {
+            // price points up to the key are at the tail of the view
+            return size - (index >= 0 ? index + 1 : -index - 1);
+        }
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Compare prices in the side order.
+     */
+    private int compare(float first, float second) {
+        return descending ? Float.compare(second, first) : Float.compare(first, second);
+    }
+
+    /**
+     * Price points of a key range, from inclusive and to exclusive in the side order, a null bound is open.
+     * Reads the live storage, the range is resolved on every access.
+     */
+    private final class RangeView extends AbstractMap<Float, Float> implements SortedMap<Float, Float> {
+
+        private final Float fromKey;
+        private final Float toKey;
+
+        RangeView(Float fromKey, Float toKey) {
+            if (fromKey != null && toKey != null && compare(fromKey, toKey) > 0) {
+                throw new IllegalArgumentException("fromKey > toKey");
+            }
+            this.fromKey = fromKey;
+            this.toKey = toKey;
+        }
+
+        @Override
+        public Comparator<? super Float> comparator() {
+            return OrderBookSide.this.comparator();
+        }
+
+        @Override
+        public SortedMap<Float, Float> subMap(Float from, Float to) {
+            return new RangeView(checkInRange(from), checkInRange(to));
+        }
+
+        @Override
+        public SortedMap<Float, Float> headMap(Float to) {
+            return new RangeView(fromKey, checkInRange(to));
+        }
+
+        @Override
+        public SortedMap<Float, Float> tailMap(Float from) {
+            return new RangeView(checkInRange(from), toKey);
+        }
+
+        @Override
+        public Float firstKey() {
+            int start = start();
+            if (start >= end()) {
+                throw new NoSuchElementException();
+            }
+            return levels.price(storageIndex(start));
+        }
+
+        @Override
+        public Float lastKey() {
+            int end = end();
+            if (start() >= end) {
+                throw new NoSuchElementException();
+            }
+            return levels.price(storageIndex(end - 1));
+        }
+
+        @Override
+        public Float get(Object key) {
+            return inRange(key) ? OrderBookSide.this.get(key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return inRange(key) && OrderBookSide.this.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return Math.max(0, end() - start());
+        }
+
+        @Override
+        public Set<Entry<Float, Float>> entrySet() {
+            return new EntrySet(fromKey, toKey);
+        }
+
+        private int start() {
+            return rangeStart(fromKey);
+        }
+
+        private int end() {
+            return rangeEnd(toKey);
+        }
+
+        private boolean inRange(Object key) {
+            if (!(key instanceof Float)) {
+                return false;
+            }
+            float price = (Float) key;
+            return (fromKey == null || compare(price, fromKey) >= 0) && (toKey == null || compare(price, toKey) < 0);
+        }
+
+        /**
+         * A bound of a nested range may be the open end of this one, as with {@link java.util.TreeMap} views.
+         */
+        private Float checkInRange(Float key) {
+            float price = key;
+            if ((fromKey != null && compare(price, fromKey) < 0) || (toKey != null && compare(price, toKey) > 0)) {
+                throw new IllegalArgumentException("key out of range");
+            }
+            return key;
+        }
+    }
+
+    /**
+     * Entries of a key range in the side order, the range is resolved when iterating starts.
+     */
+    private final class EntrySet extends AbstractSet<Entry<Float, Float>> {
+
+        private final Float fromKey;
+        private final Float toKey;
+
+        EntrySet(Float fromKey, Float toKey) {
+            this.fromKey = fromKey;
+            this.toKey = toKey;
+        }
+
+        @Override
+        public Iterator<Entry<Float, Float>> iterator() {
+            int start = rangeStart(fromKey);
+            int end = rangeEnd(toKey);
+            return new Iterator<>() {
+
+                private int next = start;
+
+                @Override
+                public boolean hasNext() {
+                    return next < end;
+                }
+
+                @Override
+                public Entry<Float, Float> next() {
+                    if (next >= end) {
+                        throw new NoSuchElementException();
+                    }
+                    int index = storageIndex(next++);
+                    return new SimpleImmutableEntry<>(levels.price(index), levels.volume(index));
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return Math.max(0, rangeEnd(toKey) - rangeStart(fromKey));
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (levels.capacity() < capacity) {
+            PriceLevels grown = allocator.allocate(Math.max(capacity, levels.capacity() * 2));
+            levels.copy(0, grown, 0, size);
+            levels.release();
+            levels = grown;
+        }
+    }
+
+    private void ensureMergeCapacity(int capacity) {
+        if (mergedLevels.capacity() < capacity) {
+            PriceLevels grown = allocator.allocate(Math.max(capacity, mergedLevels.capacity() * 2));
+            mergedLevels.release();
+            mergedLevels = grown;
+        }
+    }
+
+    /**
+     * @return 1 if strictly ascending, -1 if strictly descending, 0 otherwise
+     */
+    private static int sortDirection(float[] levelPrices, int count) {
+        boolean ascending = true;
+        boolean descending = true;
+        for (int i = 1; i < count && (ascending || descending); i++) {
+            int comparison = Float.compare(levelPrices[i - 1], levelPrices[i]);
+            ascending &= comparison < 0;
+            descending &= comparison > 0;
+        }
+        return ascending ? 1 : descending ? -1 : 0;
+    }
+
+    /**
+     * Float bits flipped so that signed integer order matches {@link Float#compare} order.
+     */
+    private static int sortableBits(float price) {
+        int bits = Float.floatToIntBits(price);
+        return bits ^ ((bits >> 31) & 0x7fffffff);
+    }
+}
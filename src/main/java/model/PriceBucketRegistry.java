@@ -0,0 +1,81 @@
+package model;
+
+import static java.util.Collections.emptyList;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Order book factory attaching the price bucket views registered for a pair to every book created for it. Views are
+ * registered per pair and bucket size before the subscription, or for every pair with default bucket sizes, and
+ * follow the pair across re-created books, leaving the replaced book.
+ */
+public class PriceBucketRegistry implements IOrderBookFactory {
+
+    private final IOrderBookFactory orderBookFactory;
+    private final float[] defaultBucketSizes;
+    private final Map<String, List<PriceBucketView>> views = new ConcurrentHashMap<>();
+    private final Map<String, OrderBook> books = new ConcurrentHashMap<>();
+
+    /**
+     * @param orderBookFactory - provides the storage of the books, e.g. off-heap
+     * @param defaultBucketSizes - bucket sizes of the views registered for every pair
+     */
+    public PriceBucketRegistry(IOrderBookFactory orderBookFactory, float... defaultBucketSizes) {
+        this.orderBookFactory = orderBookFactory;
+        this.defaultBucketSizes = defaultBucketSizes.clone();
+    }
+
+    /**
+     * A view registered once the book of the pair exists follows that book right away, starting from its current
+     * price points; such a late registration must run on the thread updating the book.
+     * @param pair - order book pair, e.g. "BTC/USD"
+     * @param bucketSize - the price range of a bucket
+     * @return the view of the pair with the bucket size, registered on first use
+     */
+    public PriceBucketView register(String pair, float bucketSize) {
+        List<PriceBucketView> pairViews = views.computeIfAbsent(pair, key -> new CopyOnWriteArrayList<>());
+        synchronized (pairViews) {
+            for (PriceBucketView view : pairViews) {
+                if (view.getBucketSize() == bucketSize) {
+                    return view;
+                }
+            }
+            PriceBucketView view = new PriceBucketView(bucketSize);
+            OrderBook book = books.get(pair);
+            if (book != null) {
+                book.addLevelChangeListener(view);
+            }
+            pairViews.add(view);
+            return view;
+        }
+    }
+
+    /**
+     * @param pair - order book pair, e.g. "BTC/USD"
+     * @return the views registered for the pair, in registration order
+     */
+    public List<PriceBucketView> getViews(String pair) {
+        return views.getOrDefault(pair, emptyList());
+    }
+
+    @Override
+    public OrderBook createOrderBook(String pair) {
+        OrderBook book = orderBookFactory.createOrderBook(pair);
+        for (float bucketSize : defaultBucketSizes) {
+            register(pair, bucketSize);
+        }
+        OrderBook previous = books.put(pair, book);
+        for (PriceBucketView view : getViews(pair)) {
+            // the views start over with the new book, changes of the replaced one must not reach them anymore
+            if (previous != null) {
+                previous.removeLevelChangeListener(view);
+            }
+            view.clear();
+            book.addLevelChangeListener(view);
+        }
+        return book;
+    }
+}
@@ -0,0 +1,208 @@
+package model;
+
+import static java.util.Collections.reverseOrder;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Order book grouped into coarser price buckets, e.g. $10 buckets for BTC/USD. A price point belongs to the bucket
+ * starting at its price rounded down to a multiple of the bucket size.
+ * <p>
+ * The view follows the book as an {@link ILevelChangeListener}: each price point change adds its volume delta to its
+ * bucket in O(1), nothing is re-aggregated per message. Buckets are kept per side in an open addressing table of
+ * primitive arrays keyed by the bucket index, so a change allocates nothing; emptied buckets keep their slot until
+ * the table is rebuilt for a new bucket, which drops them.
+ * <p>
+ * Buckets are written by the thread updating the book and can be read concurrently from any thread; each bucket is
+ * consistent on its own, a read spanning buckets may mix two consecutive updates.
+ */
+public class PriceBucketView implements ILevelChangeListener {
+
+    private final float bucketSize;
+    // replaced by the writer when rebuilt, readers keep reading the table they started with
+    private volatile BucketTable asks = new BucketTable(BucketTable.INITIAL_CAPACITY);
+    private volatile BucketTable bids = new BucketTable(BucketTable.INITIAL_CAPACITY);
+
+    /**
+     * @param bucketSize - the price range of a bucket, e.g. 10 for $10 buckets
+     */
+    public PriceBucketView(float bucketSize) {
+        if (!(bucketSize > 0)) {
+            throw new IllegalArgumentException("Bucket size must be positive: " + bucketSize);
+        }
+        this.bucketSize = bucketSize;
+    }
+
+    @Override
+    public void onLevelChange(boolean ask, float price, float previousVolume, float volume) {
+        BucketTable table = ask ? asks : bids;
+        long index = bucketIndex(price);
+        int slot = table.find(index);
+        if (slot < 0) {
+            if (table.isFull()) {
+                table = table.rebuild();
+                if (ask) {
+                    asks = table;
+                } else {
+                    bids = table;
+                }
+            }
+            slot = table.insert(index);
+        }
+        table.apply(slot, previousVolume, volume);
+    }
+
+    public float getBucketSize() {
+        return bucketSize;
+    }
+
+    /**
+     * @return the aggregated ask volume of the bucket holding the price, 0 if the bucket is empty
+     */
+    public float getAskVolume(float price) {
+        return (float) asks.volume(bucketIndex(price));
+    }
+
+    /**
+     * @return the aggregated bid volume of the bucket holding the price, 0 if the bucket is empty
+     */
+    public float getBidVolume(float price) {
+        return (float) bids.volume(bucketIndex(price));
+    }
+
+    /**
+     * @return a copy of the ask buckets, by bucket start price from highest to lowest as in {@link OrderBook#getAsks()}
+     */
+    public SortedMap<Float, Float> getAsks() {
+        return asks.copy(bucketSize, new TreeMap<>(reverseOrder()));
+    }
+
+    /**
+     * @return a copy of the bid buckets, by bucket start price from lowest to highest as in {@link OrderBook#getBids()}
+     */
+    public SortedMap<Float, Float> getBids() {
+        return bids.copy(bucketSize, new TreeMap<>());
+    }
+
+    /**
+     * Drop all buckets, e.g. before following a newly created book.
+     */
+    public void clear() {
+        asks = new BucketTable(BucketTable.INITIAL_CAPACITY);
+        bids = new BucketTable(BucketTable.INITIAL_CAPACITY);
+    }
+
+    private long bucketIndex(float price) {
+        return (long) Math.floor(price / (double) bucketSize);
+    }
+
+    /**
+     * Linear probing table of buckets, at most half full. Slots are only ever claimed, never freed, so a reader
+     * probing concurrently with the single writer never misses a bucket; elements are written with release and read
+     * with acquire semantics.
+     */
+    private static final class BucketTable {
+
+        static final int INITIAL_CAPACITY = 16;
+
+        private static final long FREE = Long.MIN_VALUE;
+        private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(long[].class);
+        private static final VarHandle VOLUMES = MethodHandles.arrayElementVarHandle(double[].class);
+        private static final VarHandle LEVELS = MethodHandles.arrayElementVarHandle(int[].class);
+
+        private final long[] keys;
+        private final double[] volumes;
+        private final int[] levels;
+        private final int mask;
+        // claimed slots, written by the writer only
+        private int used;
+
+        BucketTable(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, FREE);
+            volumes = new double[capacity];
+            levels = new int[capacity];
+            mask = capacity - 1;
+        }
+
+        /**
+         * @return the slot of the bucket, -1 if it has none
+         */
+        int find(long index) {
+            for (int slot = hash(index) & mask; ; slot = (slot + 1) & mask) {
+                long key = (long) KEYS.getAcquire(keys, slot);
+                if (key == index) {
+                    return slot;
+                }
+                if (key == FREE) {
+                    return -1;
+                }
+            }
+        }
+
+        boolean isFull() {
+            return used + 1 > keys.length / 2;
+        }
+
+        int insert(long index) {
+            int slot = hash(index) & mask;
+            while (keys[slot] != FREE) {
+                slot = (slot + 1) & mask;
+            }
+            KEYS.setRelease(keys, slot, index);
+            used++;
+            return slot;
+        }
+
+        void apply(int slot, float previousVolume, float newVolume) {
+            int levelCount = levels[slot] + (previousVolume == 0 ? 1 : 0) - (newVolume == 0 ? 1 : 0);
+            // an empty bucket restarts from exactly 0 rather than accumulated rounding residue
+            VOLUMES.setRelease(volumes, slot, levelCount == 0 ? 0 : volumes[slot] + newVolume - previousVolume);
+            LEVELS.setRelease(levels, slot, levelCount);
+        }
+
+        /**
+         * @return a table holding the non-empty buckets, with room for as many again
+         */
+        BucketTable rebuild() {
+            int buckets = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                buckets += keys[slot] != FREE && levels[slot] > 0 ? 1 : 0;
+            }
+            BucketTable rebuilt = new BucketTable(Math.max(INITIAL_CAPACITY, Integer.highestOneBit(buckets + 1) * 4));
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != FREE && levels[slot] > 0) {
+                    int target = rebuilt.insert(keys[slot]);
+                    rebuilt.volumes[target] = volumes[slot];
+                    rebuilt.levels[target] = levels[slot];
+                }
+            }
+            return rebuilt;
+        }
+
+        double volume(long index) {
+            int slot = find(index);
+            return slot < 0 || (int) LEVELS.getAcquire(levels, slot) == 0 ? 0
+                    : (double) VOLUMES.getAcquire(volumes, slot);
+        }
+
+        SortedMap<Float, Float> copy(float bucketSize, SortedMap<Float, Float> target) {
+            for (int slot = 0; slot < keys.length; slot++) {
+                long key = (long) KEYS.getAcquire(keys, slot);
+                if (key != FREE && (int) LEVELS.getAcquire(levels, slot) > 0) {
+                    double volume = (double) VOLUMES.getAcquire(volumes, slot);
+                    target.put((float) (key * (double) bucketSize), (float) volume);
+                }
+            }
+            return target;
+        }
+
+        private static int hash(long index) {
+            return (int) ((index * 0x9E3779B97F4A7C15L) >>> 32);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package model;
+
+/**
+ * Storage for the price points of one order book side: a fixed capacity array of (price, volume) pairs.
+ */
+interface PriceLevels {
+
+    int capacity();
+
+    float price(int index);
+
+    float volume(int index);
+
+    void set(int index, float price, float volume);
+
+    /**
+     * Copy price points to the target storage, which may be this storage with an overlapping range.
+     */
+    void copy(int from, PriceLevels target, int to, int length);
+
+    /**
+     * Binary search the first size price points, same contract as {@link java.util.Arrays#binarySearch(float[],
+     * int, int, float)}.
+     */
+    int search(int size, float price);
+
+    /**
+     * Give the storage back to its allocator, it must not be used afterwards.
+     */
+    void release();
+}
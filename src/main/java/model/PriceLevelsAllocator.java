@@ -0,0 +1,10 @@
+package model;
+
+/**
+ * Allocates the price point storage of order book sides.
+ */
+@FunctionalInterface
+interface PriceLevelsAllocator {
+
+    PriceLevels allocate(int capacity);
+}
@@ -0,0 +1,67 @@
+package sink;
+
+import java.util.Arrays;
+
+import model.OrderBook;
+
+/**
+ * Immutable copy of the best levels of a book right after a message changed it, shared by all the sinks the change
+ * is delivered to. Levels are ordered best first.
+ */
+public final class BookChange {
+
+    private final String pair;
+    private final long timestampMillis;
+    private final float[] askPrices;
+    private final float[] askVolumes;
+    private final float[] bidPrices;
+    private final float[] bidVolumes;
+
+    BookChange(String pair, long timestampMillis, OrderBook book, int depth) {
+        this.pair = pair;
+        this.timestampMillis = timestampMillis;
+        float[] prices = new float[depth];
+        float[] volumes = new float[depth];
+        int asks = book.copyBestAsks(depth, prices, volumes);
+        this.askPrices = Arrays.copyOf(prices, asks);
+        this.askVolumes = Arrays.copyOf(volumes, asks);
+        int bids = book.copyBestBids(depth, prices, volumes);
+        this.bidPrices = Arrays.copyOf(prices, bids);
+        this.bidVolumes = Arrays.copyOf(volumes, bids);
+    }
+
+    public String getPair() {
+        return pair;
+    }
+
+    /**
+     * @return the wall clock time the change was captured at
+     */
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public int getAskCount() {
+        return askPrices.length;
+    }
+
+    public float getAskPrice(int level) {
+        return askPrices[level];
+    }
+
+    public float getAskVolume(int level) {
+        return askVolumes[level];
+    }
+
+    public int getBidCount() {
+        return bidPrices.length;
+    }
+
+    public float getBidPrice(int level) {
+        return bidPrices[level];
+    }
+
+    public float getBidVolume(int level) {
+        return bidVolumes[level];
+    }
+}
@@ -0,0 +1,27 @@
+package sink;
+
+import java.io.PrintStream;
+
+/**
+ * Prints the top of book of every change, one line per change, so console output no longer holds the read thread.
+ */
+public class ConsoleSink implements IOrderBookSink {
+
+    private final PrintStream out;
+
+    public ConsoleSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void accept(BookChange change) {
+        StringBuilder line = new StringBuilder(96).append(change.getPair());
+        if (change.getBidCount() > 0) {
+            line.append(" bid ").append(change.getBidPrice(0)).append(" x ").append(change.getBidVolume(0));
+        }
+        if (change.getAskCount() > 0) {
+            line.append(" ask ").append(change.getAskPrice(0)).append(" x ").append(change.getAskVolume(0));
+        }
+        out.println(line);
+    }
+}
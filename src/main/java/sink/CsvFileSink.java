@@ -0,0 +1,53 @@
+package sink;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Appends the top of book of every change to a CSV file: timestamp, pair, best bid, its volume, best ask, its
+ * volume. Empty sides leave their columns empty.
+ */
+public class CsvFileSink implements IOrderBookSink {
+
+    static final String HEADER = "timestamp,pair,bid,bid_volume,ask,ask_volume";
+
+    private final Writer writer;
+
+    public CsvFileSink(Path file) throws IOException {
+        boolean header = !Files.exists(file) || Files.size(file) == 0;
+        this.writer = Files.newBufferedWriter(file, UTF_8, CREATE, APPEND);
+        if (header) {
+            writer.write(HEADER);
+            writer.write('\n');
+        }
+    }
+
+    @Override
+    public void accept(BookChange change) throws IOException {
+        StringBuilder line = new StringBuilder(96);
+        line.append(change.getTimestampMillis()).append(',').append(change.getPair()).append(',');
+        if (change.getBidCount() > 0) {
+            line.append(change.getBidPrice(0)).append(',').append(change.getBidVolume(0));
+        } else {
+            line.append(',');
+        }
+        line.append(',');
+        if (change.getAskCount() > 0) {
+            line.append(change.getAskPrice(0)).append(',').append(change.getAskVolume(0));
+        } else {
+            line.append(',');
+        }
+        writer.append(line).append('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,22 @@
+package sink;
+
+import java.io.IOException;
+
+/**
+ * A contract to fulfill by a class that delivers book changes to some output, e.g. a file, a socket or the console.
+ * A sink runs on its own thread and may block; a slow sink only grows its own backlog.
+ */
+public interface IOrderBookSink extends AutoCloseable {
+
+    /**
+     * @param change - the next change of a pair the sink is registered for
+     */
+    void accept(BookChange change) throws Exception;
+
+    /**
+     * Called on the sink thread once the remaining changes are delivered.
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,254 @@
+package sink;
+
+import static java.lang.String.format;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import model.OrderBook;
+import websocket.message.IFeedListener;
+
+/**
+ * Runs blocking output sinks off the WebSocket read thread. Every book update is captured once as a
+ * {@link BookChange} and offered to the bounded mailbox of each sink registered for the pair; each sink drains its
+ * mailbox on its own virtual thread, so hundreds of blocking sinks cost little more than their mailboxes. The read
+ * thread never blocks: a full mailbox drops its oldest change, the newer one supersedes it anyway.
+ * <p>
+ * Closing stops the intake, lets every sink drain its mailbox within the grace period, interrupts the sinks still
+ * delivering, closes the sinks and logs their stats.
+ */
+public class SinkRuntime implements IFeedListener, AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(SinkRuntime.class);
+    // how long closing waits for the interrupted sinks to close
+    private static final long INTERRUPTED_CLOSE_MILLIS = 500;
+    // offered on close to wake up a sink waiting on an empty mailbox, never delivered
+    private static final BookChange WAKE_UP = new BookChange("", 0, new OrderBook(), 0);
+
+    private final IFeedListener feedListener;
+    private final int depth;
+    private final long closeGraceMillis;
+    private final List<SinkWorker> workers = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+    private Thread reporter;
+
+    /**
+     * @param feedListener - the listener to pass every notification to
+     * @param depth - the number of best levels per side captured in a change
+     * @param closeGraceMillis - how long closing waits for each sink to drain its mailbox
+     */
+    public SinkRuntime(IFeedListener feedListener, int depth, long closeGraceMillis) {
+        this.feedListener = feedListener;
+        this.depth = depth;
+        this.closeGraceMillis = closeGraceMillis;
+    }
+
+    /**
+     * Start a sink on its own thread.
+     * @param name - the name of the sink in thread names and stats
+     * @param pair - the pair the sink is fed with, null for all pairs
+     * @param sink - the sink
+     * @param mailboxCapacity - the number of changes the sink may lag behind before the oldest are dropped
+     * @return the stats of the sink
+     */
+    public synchronized SinkStats register(String name, String pair, IOrderBookSink sink, int mailboxCapacity) {
+        if (closed) {
+            throw new IllegalStateException("Sink runtime is closed");
+        }
+        SinkWorker worker = new SinkWorker(name, pair, sink, mailboxCapacity);
+        workers.add(worker);
+        worker.thread = Thread.ofVirtual().name("sink-" + name).start(worker::run);
+        return worker.stats;
+    }
+
+    /**
+     * Log the stats of every sink periodically.
+     */
+    public synchronized void startReporting(long intervalMillis) {
+        if (reporter != null || closed) {
+            return;
+        }
+        reporter = Thread.ofVirtual().name("sink-reporter").start(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Thread.sleep(intervalMillis);
+                    logStats();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    @Override
+    public void onMessage(long receivedNanos) {
+        feedListener.onMessage(receivedNanos);
+    }
+
+    @Override
+    public void onOrderBookUpdate(String pair, OrderBook book, long receivedNanos) {
+        if (!closed && !workers.isEmpty()) {
+            BookChange change = null;
+            for (SinkWorker worker : workers) {
+                if (worker.pair == null || worker.pair.equals(pair)) {
+                    if (change == null) {
+                        change = new BookChange(pair, System.currentTimeMillis(), book, depth);
+                    }
+                    worker.offer(change);
+                }
+            }
+        }
+        feedListener.onOrderBookUpdate(pair, book, receivedNanos);
+    }
+
+    public List<SinkStats> getStats() {
+        List<SinkStats> stats = new ArrayList<>();
+        for (SinkWorker worker : workers) {
+            stats.add(worker.stats);
+        }
+        return stats;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (reporter != null) {
+            reporter.interrupt();
+        }
+        // signal all sinks first, then wait for all of them against a single deadline
+        for (SinkWorker worker : workers) {
+            worker.stop();
+        }
+        joinAll(closeGraceMillis);
+        boolean interrupted = false;
+        for (SinkWorker worker : workers) {
+            if (worker.thread.isAlive()) {
+                LOGGER.warn(format("Sink %s did not drain within %d ms, interrupting", worker.stats.getName(),
+                        closeGraceMillis));
+                worker.thread.interrupt();
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            joinAll(INTERRUPTED_CLOSE_MILLIS);
+        }
+        for (SinkWorker worker : workers) {
+            if (worker.thread.isAlive()) {
+                LOGGER.error(format("Sink %s did not close within %d ms of its interrupt", worker.stats.getName(),
+                        INTERRUPTED_CLOSE_MILLIS));
+            }
+            worker.mailbox.remove(WAKE_UP);
+            worker.stats.backlog = worker.mailbox.size();
+        }
+        logStats();
+    }
+
+    /**
+     * Wait for all sink threads against a single deadline.
+     */
+    private void joinAll(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            for (SinkWorker worker : workers) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis > 0) {
+                    worker.thread.join(remainingMillis);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void logStats() {
+        for (SinkWorker worker : workers) {
+            LOGGER.info(worker.stats);
+        }
+    }
+
+    private static final class SinkWorker {
+
+        private final String pair;
+        private final IOrderBookSink sink;
+        private final BlockingQueue<BookChange> mailbox;
+        private final SinkStats stats;
+        private Thread thread;
+        private volatile boolean stopping;
+
+        SinkWorker(String name, String pair, IOrderBookSink sink, int mailboxCapacity) {
+            this.pair = pair;
+            this.sink = sink;
+            this.mailbox = new ArrayBlockingQueue<>(mailboxCapacity);
+            this.stats = new SinkStats(name);
+        }
+
+        /**
+         * Called on the read thread, never blocks.
+         */
+        void offer(BookChange change) {
+            stats.offered.increment();
+            while (!mailbox.offer(change)) {
+                if (mailbox.poll() != null) {
+                    stats.dropped.increment();
+                }
+            }
+            int backlog = mailbox.size();
+            stats.backlog = backlog;
+            if (backlog > stats.maxBacklog) {
+                stats.maxBacklog = backlog;
+            }
+        }
+
+        /**
+         * Signal the worker to stop once its mailbox is drained, and wake it up if it waits on an empty mailbox.
+         */
+        void stop() {
+            stopping = true;
+            // a full mailbox needs no wake-up, the worker checks the flag again once it is drained
+            mailbox.offer(WAKE_UP);
+        }
+
+        /**
+         * Deliver changes until stopped and the mailbox is drained. The stop signal is the flag, checked before
+         * every wait, so a wake-up dropped from a full mailbox cannot leave the worker waiting.
+         */
+        void run() {
+            try {
+                while (!(stopping && mailbox.isEmpty())) {
+                    BookChange change = mailbox.take();
+                    if (change == WAKE_UP) {
+                        continue;
+                    }
+                    try {
+                        sink.accept(change);
+                        stats.delivered.increment();
+                    } catch (InterruptedException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        stats.failed.increment();
+                        LOGGER.error(format("Sink %s failed to deliver a change of %s", stats.getName(),
+                                change.getPair()), e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                try {
+                    sink.close();
+                } catch (Exception e) {
+                    LOGGER.error(format("Failed to close sink %s", stats.getName()), e);
+                }
+            }
+        }
+    }
+}
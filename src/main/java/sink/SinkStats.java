@@ -0,0 +1,62 @@
+package sink;
+
+import static java.lang.String.format;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput and backlog of a sink: changes offered to its mailbox, delivered, dropped because the mailbox was full,
+ * and failed deliveries.
+ */
+public class SinkStats {
+
+    private final String name;
+    final LongAdder offered = new LongAdder();
+    final LongAdder delivered = new LongAdder();
+    final LongAdder dropped = new LongAdder();
+    final LongAdder failed = new LongAdder();
+    volatile int backlog;
+    volatile int maxBacklog;
+
+    SinkStats(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getOffered() {
+        return offered.sum();
+    }
+
+    public long getDelivered() {
+        return delivered.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * @return the changes waiting in the mailbox when last offered to
+     */
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public int getMaxBacklog() {
+        return maxBacklog;
+    }
+
+    @Override
+    public String toString() {
+        return format(Locale.ROOT, "sink %s: offered=%d, delivered=%d, dropped=%d, failed=%d, backlog=%d (max %d)",
+                name, getOffered(), getDelivered(), getDropped(), getFailed(), getBacklog(), getMaxBacklog());
+    }
+}
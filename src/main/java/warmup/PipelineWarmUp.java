@@ -0,0 +1,89 @@
+package warmup;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import model.IOrderBookFactory;
+import websocket.message.WebSocketMessageHandler;
+
+/**
+ * Drives the full decode and apply pipeline with synthetic Kraken frames on a throwaway handler before going live, so
+ * the hot methods are already JIT compiled when the initial snapshots burst in. Both the String and the byte path are
+ * exercised, with snapshots, single level updates, multi level bursts going through the batch merge, and events.
+ * The books come from a factory configured as the live one, so any level change listeners are compiled too.
+ * <p>
+ * Rounds of messages run until the JIT compiler has been idle for a couple of rounds, i.e. the hot methods reached
+ * their final tier, or until the time budget is spent.
+ */
+public final class PipelineWarmUp {
+
+    private static final Logger LOGGER = LogManager.getLogger(PipelineWarmUp.class);
+
+    private static final int DISTINCT_FRAMES = 1024;
+    private static final int BURST_LEVELS = 8;
+    private static final int MESSAGES_PER_ROUND = 10_000;
+    private static final int QUIET_ROUNDS = 2;
+    private static final String HEARTBEAT = "{\"event\":\"heartbeat\"}";
+
+    private PipelineWarmUp() {
+    }
+
+    /**
+     * @param orderBookFactory - provides the books of the throwaway handler, configured as the live one
+     * @param maxMillis - the time budget of the warm-up
+     * @return the number of messages handled
+     */
+    public static long run(IOrderBookFactory orderBookFactory, long maxMillis) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxMillis);
+        CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+        boolean monitored = compiler != null && compiler.isCompilationTimeMonitoringSupported();
+
+        SyntheticBookFrames frames = new SyntheticBookFrames(DISTINCT_FRAMES, 42);
+        SyntheticBookFrames bursts = new SyntheticBookFrames(DISTINCT_FRAMES, BURST_LEVELS, 43);
+        ByteBuffer snapshot = frames.byteSnapshot();
+        ByteBuffer heartbeat = ByteBuffer.wrap(HEARTBEAT.getBytes(UTF_8));
+
+        long messages = 0;
+        long compilationMillis = monitored ? compiler.getTotalCompilationTime() : 0;
+        int quietRounds = 0;
+        while (quietRounds < QUIET_ROUNDS && System.nanoTime() < deadline) {
+            // a new handler per round, the String path only takes the first message of a pair as its snapshot
+            WebSocketMessageHandler handler = new WebSocketMessageHandler(orderBookFactory);
+            handler.handleMessage(frames.getSnapshot());
+            handler.handleMessage(snapshot.duplicate(), true);
+            for (int i = 0; i < MESSAGES_PER_ROUND; i++) {
+                // alternate the String and the byte path, and single levels with bursts
+                SyntheticBookFrames source = (i & 2) == 0 ? frames : bursts;
+                int frame = (i >> 2) % DISTINCT_FRAMES;
+                if ((i & 1) == 0) {
+                    handler.handleMessage(source.getUpdates().get(frame));
+                } else {
+                    handler.handleMessage(source.getByteUpdates().get(frame).duplicate(), true);
+                }
+            }
+            handler.handleMessage(HEARTBEAT);
+            handler.handleMessage(heartbeat.duplicate(), true);
+            messages += MESSAGES_PER_ROUND + 4;
+
+            if (monitored) {
+                long compiled = compiler.getTotalCompilationTime();
+                quietRounds = compiled == compilationMillis ? quietRounds + 1 : 0;
+                compilationMillis = compiled;
+            }
+        }
+
+        LOGGER.info(format("Warm-up handled %d messages in %d ms%s", messages,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                quietRounds >= QUIET_ROUNDS ? ", JIT compiler idle" : ", time budget spent"));
+        return messages;
+    }
+}
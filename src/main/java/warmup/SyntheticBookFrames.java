@@ -0,0 +1,95 @@
+package warmup;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Seeded synthetic Kraken book messages for a single pair: a snapshot followed by update frames which change, remove
+ * and re-insert price points of the snapshot, so the book size stays stable however many are applied. Updates carry
+ * a single level, or bursts of levels on one side, possibly repeating a price point.
+ * Every update is available as String and as UTF-8 bytes.
+ */
+public final class SyntheticBookFrames {
+
+    public static final String PAIR = "XBT/USD";
+    public static final int LEVELS = 50;
+
+    private static final String SNAPSHOT_LEVEL = "[\"%.5f\",\"%.8f\",\"1669028780.983665\"]";
+    private static final String UPDATE_LEVEL = "[\"%.5f\",\"%.8f\",\"1669031634.946619\"]";
+    private static final String SNAPSHOT_FRAME = "[336,{\"as\":[%s],\"bs\":[%s]},\"book-%d\",\"%s\"]";
+    private static final String UPDATE_FRAME = "[336,{\"%s\":[%s],\"c\":\"2867552989\"},\"book-%d\",\"%s\"]";
+
+    private final String snapshot = prepareSnapshotFrame();
+    private final List<String> updates;
+    private final List<ByteBuffer> byteUpdates;
+
+    public SyntheticBookFrames(int count, long seed) {
+        this(count, 1, seed);
+    }
+
+    /**
+     * @param maxLevelsPerUpdate - the most levels an update carries, every update carries 1 when 1
+     */
+    public SyntheticBookFrames(int count, int maxLevelsPerUpdate, long seed) {
+        List<String> updates = new ArrayList<>(count);
+        List<ByteBuffer> byteUpdates = new ArrayList<>(count);
+
+        Random random = new Random(seed);
+        for (int i = 0; i < count; i++) {
+            boolean asks = random.nextBoolean();
+            int levels = maxLevelsPerUpdate == 1 ? 1 : 1 + random.nextInt(maxLevelsPerUpdate);
+            StringBuilder update = new StringBuilder();
+            for (int level = 0; level < levels; level++) {
+                float price = levelPrice(asks, random.nextInt(LEVELS));
+                // every fourth level is removed, the next update touching it re-inserts it
+                float volume = random.nextInt(4) == 0 ? 0 : 0.1f + random.nextInt(1000) / 100f;
+                update.append(level == 0 ? "" : ",").append(format(Locale.ROOT, UPDATE_LEVEL, price, volume));
+            }
+            updates.add(format(UPDATE_FRAME, asks ? "a" : "b", update, LEVELS, PAIR));
+            byteUpdates.add(ByteBuffer.wrap(updates.get(i).getBytes(UTF_8)));
+        }
+        this.updates = Collections.unmodifiableList(updates);
+        this.byteUpdates = Collections.unmodifiableList(byteUpdates);
+    }
+
+    public String getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return the snapshot as UTF-8 bytes, a new buffer on every call
+     */
+    public ByteBuffer byteSnapshot() {
+        return ByteBuffer.wrap(snapshot.getBytes(UTF_8));
+    }
+
+    public List<String> getUpdates() {
+        return updates;
+    }
+
+    public List<ByteBuffer> getByteUpdates() {
+        return byteUpdates;
+    }
+
+    private static String prepareSnapshotFrame() {
+        StringBuilder asks = new StringBuilder();
+        StringBuilder bids = new StringBuilder();
+        for (int i = 0; i < LEVELS; i++) {
+            String separator = i == 0 ? "" : ",";
+            asks.append(separator).append(format(Locale.ROOT, SNAPSHOT_LEVEL, levelPrice(true, i), 1.0f));
+            bids.append(separator).append(format(Locale.ROOT, SNAPSHOT_LEVEL, levelPrice(false, i), 1.0f));
+        }
+        return format(SNAPSHOT_FRAME, asks, bids, LEVELS, PAIR);
+    }
+
+    private static float levelPrice(boolean ask, int level) {
+        return ask ? 16060.0f + level * 0.5f : 16059.5f - level * 0.5f;
+    }
+}
@@ -0,0 +1,70 @@
+package websocket;
+
+import static java.lang.String.format;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per connection accounting of the permessage-deflate trade-off: bytes received on the wire against bytes handed
+ * to the application, and the CPU time spent inflating.
+ */
+public class CompressionStats {
+
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong compressedFrames = new AtomicLong();
+    private final AtomicLong wireBytes = new AtomicLong();
+    private final AtomicLong payloadBytes = new AtomicLong();
+    private final AtomicLong inflateCpuNanos = new AtomicLong();
+
+    void recordFrame(long frameWireBytes, long framePayloadBytes) {
+        frames.incrementAndGet();
+        wireBytes.addAndGet(frameWireBytes);
+        payloadBytes.addAndGet(framePayloadBytes);
+    }
+
+    void recordInflate(long cpuNanos) {
+        compressedFrames.incrementAndGet();
+        inflateCpuNanos.addAndGet(cpuNanos);
+    }
+
+    public long getFrames() {
+        return frames.get();
+    }
+
+    public long getCompressedFrames() {
+        return compressedFrames.get();
+    }
+
+    /**
+     * @return data frame payload bytes as received, compressed or not
+     */
+    public long getWireBytes() {
+        return wireBytes.get();
+    }
+
+    /**
+     * @return data frame payload bytes after inflation
+     */
+    public long getPayloadBytes() {
+        return payloadBytes.get();
+    }
+
+    public long getInflateCpuNanos() {
+        return inflateCpuNanos.get();
+    }
+
+    /**
+     * @return payload bytes per wire byte, 1 without compression
+     */
+    public double getCompressionRatio() {
+        long wire = getWireBytes();
+        return wire == 0 ? 1 : (double) getPayloadBytes() / wire;
+    }
+
+    @Override
+    public String toString() {
+        return format("frames=%d (compressed %d), wire=%d bytes, payload=%d bytes, ratio=%.2f, inflate cpu=%.3f ms",
+                getFrames(), getCompressedFrames(), getWireBytes(), getPayloadBytes(), getCompressionRatio(),
+                getInflateCpuNanos() / 1_000_000.0);
+    }
+}
@@ -0,0 +1,13 @@
+package websocket;
+
+import javax.websocket.CloseReason;
+
+/**
+ * A contract to fulfill by a class that follows the WebSocket connection, e.g. for health monitoring.
+ */
+public interface IConnectionListener {
+
+    void onConnectionError(Throwable error);
+
+    void onConnectionClose(CloseReason reason);
+}
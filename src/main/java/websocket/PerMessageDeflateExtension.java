@@ -0,0 +1,178 @@
+package websocket;
+
+import static java.util.Collections.emptyList;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.glassfish.tyrus.core.extension.ExtendedExtension;
+import org.glassfish.tyrus.core.frame.Frame;
+
+/**
+ * Client side permessage-deflate (RFC 7692) for Tyrus. Incoming compressed messages are inflated with one
+ * {@link Inflater} per connection, kept across messages unless the server negotiates no context takeover. Outgoing
+ * messages are sent uncompressed, which the RFC allows, as the client only sends the subscription.
+ * <p>
+ * Wire and payload bytes and the inflate CPU time are accounted in {@link CompressionStats}. An instance serves a
+ * single connection.
+ * <p>
+ * Being the only negotiated extension, it is also the one place that sees the UTF-8 payload of text frames before
+ * the container decodes them into a String. When created to deliver text as binary, text messages are passed on
+ * as binary ones, so they reach the byte level {@code ByteBuffer} handlers of the endpoint.
+ * @see  <a href="https://datatracker.ietf.org/doc/html/rfc7692"/>
+ */
+public class PerMessageDeflateExtension implements ExtendedExtension {
+
+    static final String NAME = "permessage-deflate";
+
+    private static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+    private static final String STATE = PerMessageDeflateExtension.class.getName() + ".state";
+    // removed from the end of every compressed message by the sender
+    private static final byte[] MESSAGE_TAIL = { 0x00, 0x00, (byte) 0xff, (byte) 0xff };
+    private static final byte OPCODE_CONTINUATION = 0x0;
+    private static final byte OPCODE_TEXT = 0x1;
+    private static final byte OPCODE_BINARY = 0x2;
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final CompressionStats stats = new CompressionStats();
+    private final boolean textAsBinary;
+
+    public PerMessageDeflateExtension() {
+        this(false);
+    }
+
+    /**
+     * @param textAsBinary - pass text messages on as binary ones, continuation frames follow the first frame
+     */
+    public PerMessageDeflateExtension(boolean textAsBinary) {
+        this.textAsBinary = textAsBinary;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public List<Parameter> getParameters() {
+        return emptyList();
+    }
+
+    public CompressionStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public Frame processIncoming(ExtensionContext context, Frame frame) {
+        if (frame.isControlFrame()) {
+            return frame;
+        }
+
+        InflateState state = (InflateState) context.getProperties().get(STATE);
+        byte[] payload = frame.getPayloadData();
+        // only the first frame of a compressed message has RSV1 set
+        if (state != null && frame.getOpcode() != OPCODE_CONTINUATION) {
+            state.compressedMessage = frame.isRsv1();
+        }
+        if (state == null || !state.compressedMessage) {
+            stats.recordFrame(payload.length, payload.length);
+            return textAsBinary(frame);
+        }
+
+        long start = cpuTime();
+        byte[] inflated = state.inflate(payload, frame.isFin());
+        stats.recordInflate(cpuTime() - start);
+        stats.recordFrame(payload.length, inflated.length);
+
+        return textAsBinary(Frame.builder(frame).rsv1(false).payloadData(inflated).payloadLength(inflated.length)
+                .build());
+    }
+
+    private Frame textAsBinary(Frame frame) {
+        if (!textAsBinary || frame.getOpcode() != OPCODE_TEXT) {
+            return frame;
+        }
+        return Frame.builder(frame).opcode(OPCODE_BINARY).build();
+    }
+
+    @Override
+    public Frame processOutgoing(ExtensionContext context, Frame frame) {
+        return frame;
+    }
+
+    @Override
+    public List<Parameter> onExtensionNegotiation(ExtensionContext context, List<Parameter> requestedParameters) {
+        // server side only
+        return requestedParameters;
+    }
+
+    @Override
+    public void onHandshakeResponse(ExtensionContext context, List<Parameter> responseParameters) {
+        boolean noContextTakeover = false;
+        for (Parameter parameter : responseParameters) {
+            noContextTakeover |= SERVER_NO_CONTEXT_TAKEOVER.equals(parameter.getName());
+        }
+        context.getProperties().put(STATE, new InflateState(noContextTakeover));
+    }
+
+    @Override
+    public void destroy(ExtensionContext context) {
+        InflateState state = (InflateState) context.getProperties().remove(STATE);
+        if (state != null) {
+            state.inflater.end();
+        }
+    }
+
+    private static long cpuTime() {
+        return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_MX_BEAN.getCurrentThreadCpuTime()
+                : System.nanoTime();
+    }
+
+    private static final class InflateState {
+
+        private final Inflater inflater = new Inflater(true);
+        private final boolean noContextTakeover;
+        private byte[] output = new byte[16 * 1024];
+        private boolean compressedMessage;
+
+        InflateState(boolean noContextTakeover) {
+            this.noContextTakeover = noContextTakeover;
+        }
+
+        byte[] inflate(byte[] payload, boolean lastFrame) {
+            int length = inflate(payload, 0);
+            if (lastFrame) {
+                length = inflate(MESSAGE_TAIL, length);
+                if (noContextTakeover) {
+                    inflater.reset();
+                }
+            }
+            byte[] inflated = new byte[length];
+            System.arraycopy(output, 0, inflated, 0, length);
+            return inflated;
+        }
+
+        private int inflate(byte[] input, int length) {
+            inflater.setInput(input);
+            try {
+                while (true) {
+                    if (length == output.length) {
+                        byte[] grown = new byte[output.length * 2];
+                        System.arraycopy(output, 0, grown, 0, length);
+                        output = grown;
+                    }
+                    int inflated = inflater.inflate(output, length, output.length - length);
+                    length += inflated;
+                    if (inflated == 0 && (inflater.needsInput() || inflater.finished())) {
+                        return length;
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new WebSocketClientConnectionException("Failed to inflate permessage-deflate frame", e);
+            }
+        }
+    }
+}
@@ -17,6 +17,20 @@ public class WebSocketClient {
         this(new WebSocketClientEndpoint(webSocketWsUri), new WebSocketMessageHandler());
     }
 
+    public WebSocketClient(String webSocketWsUri, IMessageHandler messageHandler) {
+        // Establish WebSocket connection
+        this(new WebSocketClientEndpoint(webSocketWsUri), messageHandler);
+    }
+
+    /**
+     * @param connectionListener - notified of connection errors and closes, e.g. a health monitor
+     */
+    public WebSocketClient(String webSocketWsUri, IMessageHandler messageHandler,
+            IConnectionListener connectionListener) {
+        this(new WebSocketClientEndpoint(webSocketWsUri), messageHandler);
+        clientEndPoint.addConnectionListener(connectionListener);
+    }
+
     WebSocketClient(WebSocketClientEndpoint clientEndPoint, IMessageHandler messageHandler) {
         this.clientEndPoint = clientEndPoint;
         this.messageHandler = messageHandler;
@@ -1,15 +1,21 @@
 package websocket;
 
 import static java.lang.String.format;
+import static java.util.Collections.singletonList;
 import static console.ConsoleWriter.display;
 
 import java.io.IOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 import javax.websocket.ClientEndpoint;
+import javax.websocket.ClientEndpointConfig;
 import javax.websocket.CloseReason;
 import javax.websocket.ContainerProvider;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler;
 import javax.websocket.OnClose;
 import javax.websocket.OnError;
 import javax.websocket.OnMessage;
@@ -28,18 +34,54 @@ public class WebSocketClientEndpoint {
 
     private static final Logger LOGGER = LogManager.getLogger(WebSocketClientEndpoint.class);
 
+    /**
+     * Set to offer permessage-deflate, trading inflate CPU time for bandwidth, e.g. -Dorderbook.websocket.deflate
+     */
+    public static final String DEFLATE_PROPERTY = "orderbook.websocket.deflate";
+
+    /**
+     * Set to "bytes" to decode the book messages straight from the UTF-8 frame payload instead of a String, e.g.
+     * -Dorderbook.websocket.decode=bytes. The container only hands text frames out as Strings, so the frames are
+     * rerouted by the permessage-deflate extension, which is offered in this mode too; the connection fails if the
+     * server declines it.
+     */
+    public static final String DECODE_PROPERTY = "orderbook.websocket.decode";
+
+    private static final String BYTES_DECODE_MODE = "bytes";
+
     private Session userSession;
     private IMessageHandler messageHandler;
+    private PerMessageDeflateExtension deflateExtension;
+    private boolean bytesDecodeMode;
+    private IConnectionListener connectionListener;
 
     public WebSocketClientEndpoint(String endpoint) {
         try {
             WebSocketContainer container = ContainerProvider.getWebSocketContainer();
-            userSession = container.connectToServer(this, new URI(endpoint));
+            bytesDecodeMode = BYTES_DECODE_MODE.equalsIgnoreCase(System.getProperty(DECODE_PROPERTY));
+            if (System.getProperty(DEFLATE_PROPERTY) != null || bytesDecodeMode) {
+                // extensions can only be offered through a programmatic endpoint configuration
+                deflateExtension = new PerMessageDeflateExtension(bytesDecodeMode);
+                ClientEndpointConfig config = ClientEndpointConfig.Builder.create()
+                        .extensions(singletonList(deflateExtension))
+                        .build();
+                userSession = container.connectToServer(new ProgrammaticEndpoint(), config, new URI(endpoint));
+            } else {
+                userSession = container.connectToServer(this, new URI(endpoint));
+            }
         } catch (Exception e) {
             String errorMsg = format("Failed to connect to server endpoint %s", endpoint);
             LOGGER.error(format(errorMsg, endpoint), e);
             throw new WebSocketClientConnectionException(errorMsg, e);
         }
+        if (bytesDecodeMode && userSession.getNegotiatedExtensions().isEmpty()) {
+            // text frames would silently stay on the String path
+            String errorMsg = format("Server endpoint %s declined permessage-deflate, required by %s=%s", endpoint,
+                    DECODE_PROPERTY, BYTES_DECODE_MODE);
+            LOGGER.error(errorMsg);
+            closeSession();
+            throw new WebSocketClientConnectionException(errorMsg, null);
+        }
     }
 
     @OnOpen
@@ -52,13 +94,13 @@ public class WebSocketClientEndpoint {
     @OnClose
     public void onClose(CloseReason reason) {
         LOGGER.info("onClose: " + reason.toString());
-        if (userSession != null) {
-            try {
-                userSession.close();
-            } catch (IOException e) {
-                LOGGER.error("Failed to close connection", e);
-            }
+        if (deflateExtension != null) {
+            LOGGER.info("permessage-deflate: " + deflateExtension.getStats());
+        }
+        if (connectionListener != null) {
+            connectionListener.onConnectionClose(reason);
         }
+        closeSession();
     }
 
     @OnMessage
@@ -69,16 +111,80 @@ public class WebSocketClientEndpoint {
         }
     }
 
+    /**
+     * Byte level path for messages delivered as binary frames, possibly fragmented: by a relay, or the text frames
+     * of the exchange rerouted in the {@link #DECODE_PROPERTY bytes decode mode}. The book payload is decoded
+     * straight from the UTF-8 bytes without building a String.
+     */
+    @OnMessage
+    public void onMessage(ByteBuffer messagePart, boolean last) {
+        if (this.messageHandler != null) {
+            Map<String, OrderBook> orderBookMap = this.messageHandler.handleMessage(messagePart, last);
+            display(orderBookMap);
+        }
+    }
+
     @OnError
     public void onError(Session session, Throwable ex) {
         LOGGER.error(format("WebSocket error => '%s' => '%s'", session, ex.getMessage()), ex);
+        if (connectionListener != null) {
+            connectionListener.onConnectionError(ex);
+        }
+    }
+
+    private void closeSession() {
+        if (userSession != null) {
+            try {
+                userSession.close();
+            } catch (IOException e) {
+                LOGGER.error("Failed to close connection", e);
+            }
+        }
     }
 
     public void addMessageHandler(IMessageHandler messageHandler) {
         this.messageHandler = messageHandler;
     }
 
+    public void addConnectionListener(IConnectionListener connectionListener) {
+        this.connectionListener = connectionListener;
+    }
+
     public void sendMessage(String message) {
         this.userSession.getAsyncRemote().sendText(message);
     }
+
+    /**
+     * @return the compression accounting of the connection, or null when permessage-deflate is not offered
+     */
+    public CompressionStats getCompressionStats() {
+        return deflateExtension == null ? null : deflateExtension.getStats();
+    }
+
+    /**
+     * Routes the callbacks of a programmatically configured connection to the annotated methods.
+     */
+    private class ProgrammaticEndpoint extends Endpoint {
+
+        @Override
+        public void onOpen(Session session, EndpointConfig config) {
+            session.addMessageHandler(String.class,
+                    (MessageHandler.Whole<String>) WebSocketClientEndpoint.this::onMessage);
+            session.addMessageHandler(ByteBuffer.class,
+                    (MessageHandler.Partial<ByteBuffer>) WebSocketClientEndpoint.this::onMessage);
+            LOGGER.info(session.getNegotiatedExtensions().isEmpty() ? "Server declined permessage-deflate"
+                    : "Negotiated permessage-deflate");
+            WebSocketClientEndpoint.this.onOpen(session);
+        }
+
+        @Override
+        public void onClose(Session session, CloseReason closeReason) {
+            WebSocketClientEndpoint.this.onClose(closeReason);
+        }
+
+        @Override
+        public void onError(Session session, Throwable throwable) {
+            WebSocketClientEndpoint.this.onError(session, throwable);
+        }
+    }
 }
\ No newline at end of file
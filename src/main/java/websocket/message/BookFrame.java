@@ -0,0 +1,58 @@
+package websocket.message;
+
+import java.util.Arrays;
+
+/**
+ * Reusable holder of a Kraken book message decoded straight from its UTF-8 bytes.
+ */
+class BookFrame {
+
+    enum Type {
+        SNAPSHOT,
+        UPDATE,
+        /**
+         * Events, heartbeats and anything which is not a book message
+         */
+        OTHER
+    }
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    Type type;
+    String pair;
+
+    float[] askPrices = new float[INITIAL_CAPACITY];
+    float[] askVolumes = new float[INITIAL_CAPACITY];
+    int askCount;
+
+    float[] bidPrices = new float[INITIAL_CAPACITY];
+    float[] bidVolumes = new float[INITIAL_CAPACITY];
+    int bidCount;
+
+    void reset() {
+        type = Type.OTHER;
+        pair = null;
+        askCount = 0;
+        bidCount = 0;
+    }
+
+    void addAsk(float price, float volume) {
+        if (askCount == askPrices.length) {
+            askPrices = Arrays.copyOf(askPrices, askCount * 2);
+            askVolumes = Arrays.copyOf(askVolumes, askCount * 2);
+        }
+        askPrices[askCount] = price;
+        askVolumes[askCount] = volume;
+        askCount++;
+    }
+
+    void addBid(float price, float volume) {
+        if (bidCount == bidPrices.length) {
+            bidPrices = Arrays.copyOf(bidPrices, bidCount * 2);
+            bidVolumes = Arrays.copyOf(bidVolumes, bidCount * 2);
+        }
+        bidPrices[bidCount] = price;
+        bidVolumes[bidCount] = volume;
+        bidCount++;
+    }
+}
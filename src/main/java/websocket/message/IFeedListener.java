@@ -0,0 +1,35 @@
+package websocket.message;
+
+import model.OrderBook;
+
+/**
+ * A contract to fulfill by a class that follows the processing of the feed, e.g. for health monitoring. Called on the
+ * thread handling the messages, so implementations must be cheap.
+ */
+public interface IFeedListener {
+
+    IFeedListener NONE = new IFeedListener() {
+
+        @Override
+        public void onMessage(long receivedNanos) {
+        }
+
+        @Override
+        public void onOrderBookUpdate(String pair, OrderBook book, long receivedNanos) {
+        }
+    };
+
+    /**
+     * Called for every complete message, including events and heartbeats.
+     * @param receivedNanos - {@link System#nanoTime()} when the handler got the message
+     */
+    void onMessage(long receivedNanos);
+
+    /**
+     * Called once a message has been applied to the book of a pair.
+     * @param pair - order book pair, e.g. "XBT/USD"
+     * @param book - the updated book
+     * @param receivedNanos - {@link System#nanoTime()} when the handler got the message
+     */
+    void onOrderBookUpdate(String pair, OrderBook book, long receivedNanos);
+}
@@ -1,5 +1,6 @@
 package websocket.message;
 
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 import model.OrderBook;
@@ -10,4 +11,12 @@ import model.OrderBook;
 public interface IMessageHandler {
 
     Map<String, OrderBook> handleMessage(String message);
+
+    /**
+     * Process a message received as UTF-8 bytes, possibly in several parts.
+     * @param messagePart - the next part of the message
+     * @param last - whether this is the last part of the message
+     * @return a map of pair and corresponding order book, empty while the message is incomplete or has no book
+     */
+    Map<String, OrderBook> handleMessage(ByteBuffer messagePart, boolean last);
 }
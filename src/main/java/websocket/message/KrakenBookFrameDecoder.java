@@ -0,0 +1,436 @@
+package websocket.message;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Decodes Kraken book messages straight from their UTF-8 bytes into a reusable {@link BookFrame}, without
+ * materializing a String, a char[] or a JSON tree. Fragmented messages are accumulated in a reusable buffer.
+ * <p>
+ * Handles snapshots {@code [id,{"as":[...],"bs":[...]},"book-10","XBT/USD"]} and updates carrying asks, bids or both
+ * {@code [id,{"a":[...]},{"b":[...],"c":"..."},"book-10","XBT/USD"]}. Any other message decodes as
+ * {@link BookFrame.Type#OTHER}. Not thread safe, a decoder serves a single connection.
+ * @see  <a href="https://docs.kraken.com/websockets/#message-book"/>
+ */
+class KrakenBookFrameDecoder {
+
+    private static final int INITIAL_FRAGMENT_CAPACITY = 16 * 1024;
+    private static final int MAX_MANTISSA_DIGITS = 18;
+    // largest mantissa a double holds exactly
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final int MAX_EXPONENT = 10_000;
+    // the double significand bits a float drops, and their value when the double sits halfway between two floats
+    private static final long FLOAT_ROUNDING_BITS = (1L << 29) - 1;
+    private static final long FLOAT_MIDPOINT = 1L << 28;
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final BookFrame frame = new BookFrame();
+
+    // pair names seen so far, so that a known pair resolves to its String without allocating
+    private byte[][] pairBytes = new byte[8][];
+    private String[] pairNames = new String[8];
+    private int pairCount;
+
+    private ByteBuffer fragments = ByteBuffer.allocate(INITIAL_FRAGMENT_CAPACITY);
+    private boolean fragmented;
+
+    private ByteBuffer buffer;
+    private int position;
+    private int limit;
+
+    /**
+     * Decode a message delivered in parts.
+     * @param messagePart - the next part of the message
+     * @param last - whether this is the last part of the message
+     * @return the decoded frame, or null while more parts are expected
+     */
+    BookFrame decode(ByteBuffer messagePart, boolean last) {
+        if (last && !fragmented) {
+            return decode(messagePart);
+        }
+
+        ensureFragmentCapacity(messagePart.remaining());
+        fragments.put(messagePart.duplicate());
+        fragmented = true;
+        if (!last) {
+            return null;
+        }
+
+        fragments.flip();
+        try {
+            return decode(fragments);
+        } finally {
+            fragments.clear();
+            fragmented = false;
+        }
+    }
+
+    /**
+     * Decode a complete message between the position and the limit of the buffer, which is left untouched.
+     * @return the decoded frame, reused by the next call
+     */
+    BookFrame decode(ByteBuffer message) {
+        frame.reset();
+        buffer = message;
+        position = message.position();
+        limit = message.limit();
+
+        skipWhitespace();
+        if (position >= limit || byteAt(position) != '[') {
+            // events such as heartbeats and subscription statuses are objects
+            return frame;
+        }
+        position++;
+
+        int pairStart = -1;
+        int pairEnd = -1;
+        BookFrame.Type type = BookFrame.Type.OTHER;
+        boolean first = true;
+        while (true) {
+            skipWhitespace();
+            byte next = peek();
+            if (next == ']') {
+                break;
+            }
+            if (!first) {
+                expect(',');
+                skipWhitespace();
+                next = peek();
+            }
+            first = false;
+
+            if (next == '{') {
+                type = decodeBookObject(type);
+            } else if (next == '"') {
+                // the pair is the last string of the message, preceded by the channel name
+                pairStart = position + 1;
+                skipString();
+                pairEnd = position - 1;
+            } else {
+                skipValue();
+            }
+        }
+
+        if (type != BookFrame.Type.OTHER && pairStart >= 0) {
+            frame.type = type;
+            frame.pair = pairName(pairStart, pairEnd);
+        }
+        return frame;
+    }
+
+    private BookFrame.Type decodeBookObject(BookFrame.Type type) {
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            return type;
+        }
+        while (true) {
+            skipWhitespace();
+            int keyStart = position + 1;
+            skipString();
+            int keyLength = position - 1 - keyStart;
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+
+            byte side = byteAt(keyStart);
+            if (keyLength == 2 && byteAt(keyStart + 1) == 's' && (side == 'a' || side == 'b')) {
+                type = BookFrame.Type.SNAPSHOT;
+                decodeLevels(side == 'a');
+            } else if (keyLength == 1 && (side == 'a' || side == 'b')) {
+                type = type == BookFrame.Type.SNAPSHOT ? type : BookFrame.Type.UPDATE;
+                decodeLevels(side == 'a');
+            } else {
+                // checksum and anything else
+                skipValue();
+            }
+
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+                return type;
+            }
+            expect(',');
+        }
+    }
+
+    /**
+     * Decode an array of [price, volume, timestamp(, "r")] levels.
+     */
+    private void decodeLevels(boolean asks) {
+        expect('[');
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+            return;
+        }
+        while (true) {
+            skipWhitespace();
+            expect('[');
+            skipWhitespace();
+            float price = decodeDecimal();
+            skipWhitespace();
+            expect(',');
+            skipWhitespace();
+            float volume = decodeDecimal();
+            skipWhitespace();
+            while (peek() == ',') {
+                position++;
+                skipWhitespace();
+                skipValue();
+                skipWhitespace();
+            }
+            expect(']');
+            if (asks) {
+                frame.addAsk(price, volume);
+            } else {
+                frame.addBid(price, volume);
+            }
+
+            skipWhitespace();
+            if (peek() == ']') {
+                position++;
+                return;
+            }
+            expect(',');
+        }
+    }
+
+    /**
+     * Decode a decimal, quoted as Kraken sends prices and volumes, or not, with an optional exponent. The value is
+     * computed in double and rounded once to float; the rare tokens that would not round exactly like
+     * {@link Float#parseFloat(String)} this way are parsed by it instead.
+     */
+    private float decodeDecimal() {
+        boolean quoted = peek() == '"';
+        if (quoted) {
+            position++;
+        }
+        int start = position;
+        boolean negative = peek() == '-';
+        if (negative) {
+            position++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        boolean truncated = false;
+        while (position < limit) {
+            byte next = byteAt(position);
+            if (next >= '0' && next <= '9') {
+                if (digits < MAX_MANTISSA_DIGITS) {
+                    mantissa = mantissa * 10 + (next - '0');
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                    if (fraction) {
+                        scale++;
+                    }
+                } else {
+                    truncated |= next != '0';
+                    if (!fraction) {
+                        scale--;
+                    }
+                }
+                position++;
+            } else if (next == '.' && !fraction) {
+                fraction = true;
+                position++;
+            } else {
+                break;
+            }
+        }
+        if (position < limit && (byteAt(position) == 'e' || byteAt(position) == 'E')) {
+            scale -= decodeExponent();
+        }
+        int end = position;
+        if (quoted) {
+            expect('"');
+        }
+
+        if (mantissa == 0 && !truncated) {
+            return negative ? -0f : 0f;
+        }
+        if (truncated || mantissa > MAX_EXACT_MANTISSA || Math.abs(scale) >= POWERS_OF_TEN.length) {
+            return parseFloat(start, end);
+        }
+        double value = scale >= 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa * POWERS_OF_TEN[-scale];
+        // the double is exact or correctly rounded, rounding it again to float is only off on a float midpoint
+        if ((Double.doubleToRawLongBits(value) & FLOAT_ROUNDING_BITS) == FLOAT_MIDPOINT) {
+            return parseFloat(start, end);
+        }
+        return (float) (negative ? -value : value);
+    }
+
+    /**
+     * @return the exponent following the current 'e' or 'E', saturated far beyond the float range
+     */
+    private int decodeExponent() {
+        position++;
+        boolean negative = peek() == '-';
+        if (negative || peek() == '+') {
+            position++;
+        }
+        int exponent = 0;
+        int digits = 0;
+        while (position < limit && byteAt(position) >= '0' && byteAt(position) <= '9') {
+            exponent = Math.min(exponent * 10 + (byteAt(position) - '0'), MAX_EXPONENT);
+            digits++;
+            position++;
+        }
+        if (digits == 0) {
+            throw malformed();
+        }
+        return negative ? -exponent : exponent;
+    }
+
+    /**
+     * Slow path of {@link #decodeDecimal()}, allocating.
+     */
+    private float parseFloat(int start, int end) {
+        byte[] token = new byte[end - start];
+        for (int i = 0; i < token.length; i++) {
+            token[i] = byteAt(start + i);
+        }
+        try {
+            return Float.parseFloat(new String(token, UTF_8));
+        } catch (NumberFormatException e) {
+            throw malformed();
+        }
+    }
+
+    private String pairName(int start, int end) {
+        int length = end - start;
+        for (int i = 0; i < pairCount; i++) {
+            if (matches(pairBytes[i], start, length)) {
+                return pairNames[i];
+            }
+        }
+
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = byteAt(start + i);
+        }
+        if (pairCount == pairBytes.length) {
+            pairBytes = Arrays.copyOf(pairBytes, pairCount * 2);
+            pairNames = Arrays.copyOf(pairNames, pairCount * 2);
+        }
+        pairBytes[pairCount] = bytes;
+        pairNames[pairCount] = new String(bytes, UTF_8);
+        return pairNames[pairCount++];
+    }
+
+    private boolean matches(byte[] bytes, int start, int length) {
+        if (bytes.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] != byteAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void skipValue() {
+        byte next = peek();
+        if (next == '"') {
+            skipString();
+        } else if (next == '[' || next == '{') {
+            skipNested();
+        } else {
+            // number, true, false or null
+            while (position < limit) {
+                next = byteAt(position);
+                if (next == ',' || next == ']' || next == '}' || isWhitespace(next)) {
+                    return;
+                }
+                position++;
+            }
+        }
+    }
+
+    private void skipNested() {
+        int depth = 0;
+        do {
+            byte next = peek();
+            if (next == '"') {
+                skipString();
+                continue;
+            }
+            if (next == '[' || next == '{') {
+                depth++;
+            } else if (next == ']' || next == '}') {
+                depth--;
+            }
+            position++;
+        } while (depth > 0);
+    }
+
+    private void skipString() {
+        expect('"');
+        while (true) {
+            byte next = peek();
+            position++;
+            if (next == '\\') {
+                position++;
+            } else if (next == '"') {
+                return;
+            }
+        }
+    }
+
+    private void skipWhitespace() {
+        while (position < limit && isWhitespace(byteAt(position))) {
+            position++;
+        }
+    }
+
+    private void expect(char expected) {
+        if (peek() != expected) {
+            throw malformed();
+        }
+        position++;
+    }
+
+    private byte peek() {
+        if (position >= limit) {
+            throw malformed();
+        }
+        return byteAt(position);
+    }
+
+    private byte byteAt(int index) {
+        return buffer.get(index);
+    }
+
+    private IllegalArgumentException malformed() {
+        return new IllegalArgumentException("Malformed Kraken book message at byte " + position);
+    }
+
+    private void ensureFragmentCapacity(int additional) {
+        if (fragments.remaining() < additional) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(fragments.capacity() * 2,
+                    fragments.position() + additional));
+            fragments.flip();
+            grown.put(fragments);
+            fragments = grown;
+        }
+    }
+
+    private static boolean isWhitespace(byte value) {
+        return value == ' ' || value == '\n' || value == '\r' || value == '\t';
+    }
+}
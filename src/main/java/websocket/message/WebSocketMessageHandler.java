@@ -2,24 +2,50 @@ package websocket.message;
 
 import static java.util.Collections.emptyMap;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
-import static websocket.message.WebSocketMessagePayloadHelper.createOrderBook;
+import static websocket.message.WebSocketMessagePayloadHelper.BOOK_DEPTH;
+import static websocket.message.WebSocketMessagePayloadHelper.loadOrderBook;
 import static websocket.message.WebSocketMessagePayloadHelper.getOrderBookPair;
 import static websocket.message.WebSocketMessagePayloadHelper.updateOrderBook;
 
+import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.TreeMap;
 
+import model.IOrderBookFactory;
 import model.OrderBook;
 
 public class WebSocketMessageHandler implements IMessageHandler {
 
     private final Map<String, OrderBook> orderBookMap;
+    private final IOrderBookFactory orderBookFactory;
+    private final IFeedListener feedListener;
+    private final KrakenBookFrameDecoder frameDecoder = new KrakenBookFrameDecoder();
 
     public WebSocketMessageHandler() {
-        orderBookMap = new TreeMap<>();
+        this(pair -> new OrderBook());
     }
 
+    /**
+     * @param orderBookFactory - provides the storage of newly subscribed order books, e.g. off-heap
+     */
+    public WebSocketMessageHandler(IOrderBookFactory orderBookFactory) {
+        this(orderBookFactory, IFeedListener.NONE);
+    }
+
+    /**
+     * @param orderBookFactory - provides the storage of newly subscribed order books, e.g. off-heap
+     * @param feedListener - notified of every message and book update, e.g. a health monitor
+     */
+    public WebSocketMessageHandler(IOrderBookFactory orderBookFactory, IFeedListener feedListener) {
+        this.orderBookMap = new TreeMap<>();
+        this.orderBookFactory = orderBookFactory;
+        this.feedListener = feedListener;
+    }
+
+    @Override
     public Map<String, OrderBook> handleMessage(String message) {
+        long receivedNanos = System.nanoTime();
+        feedListener.onMessage(receivedNanos);
         String orderBookPair = getOrderBookPair(message);
 
         if (isEmpty(orderBookPair)) {
@@ -28,11 +54,55 @@ public class WebSocketMessageHandler implements IMessageHandler {
 
         OrderBook book = orderBookMap.get(orderBookPair);
         if (book == null) {
-            orderBookMap.put(orderBookPair, createOrderBook(message));
+            book = orderBookFactory.createOrderBook(orderBookPair);
+            loadOrderBook(message, book);
+            orderBookMap.put(orderBookPair, book);
         } else {
             updateOrderBook(message, book);
             orderBookMap.put(orderBookPair, book);
         }
+        // Kraken does not remove the levels an update pushes out of the subscribed depth
+        book.truncate(BOOK_DEPTH);
+        feedListener.onOrderBookUpdate(orderBookPair, book, receivedNanos);
+
+        return orderBookMap;
+    }
+
+    /**
+     * Byte level path: the book payload is decoded straight from the UTF-8 bytes into reusable buffers, and applied
+     * with the batch book operations, without any intermediate String or JSON tree.
+     */
+    @Override
+    public Map<String, OrderBook> handleMessage(ByteBuffer messagePart, boolean last) {
+        long receivedNanos = System.nanoTime();
+        BookFrame frame = frameDecoder.decode(messagePart, last);
+        if (frame == null) {
+            return emptyMap();
+        }
+        feedListener.onMessage(receivedNanos);
+        if (frame.type == BookFrame.Type.OTHER) {
+            return emptyMap();
+        }
+
+        OrderBook book = orderBookMap.get(frame.pair);
+        if (book == null) {
+            book = orderBookFactory.createOrderBook(frame.pair);
+            orderBookMap.put(frame.pair, book);
+        }
+
+        if (frame.type == BookFrame.Type.SNAPSHOT) {
+            book.loadAsks(frame.askPrices, frame.askVolumes, frame.askCount);
+            book.loadBids(frame.bidPrices, frame.bidVolumes, frame.bidCount);
+        } else {
+            if (frame.askCount > 0) {
+                book.updateAsks(frame.askPrices, frame.askVolumes, frame.askCount);
+            }
+            if (frame.bidCount > 0) {
+                book.updateBids(frame.bidPrices, frame.bidVolumes, frame.bidCount);
+            }
+        }
+        book.truncate(BOOK_DEPTH);
+        feedListener.onOrderBookUpdate(frame.pair, book, receivedNanos);
 
         return orderBookMap;
     }
@@ -6,8 +6,6 @@ import static org.apache.commons.lang3.StringUtils.isEmpty;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
@@ -28,7 +26,13 @@ public class WebSocketMessagePayloadHelper {
     private static final String ASKS_UPDATE = "a";
     private static final String BIDS = "bs";
     private static final String BIDS_UPDATE = "b";
-    private static final int ORDER_BOOK_PAIR_INDEX_FROM_RESPONSE = 3;
+    /**
+     * Depth of the subscribed books: the subscription does not ask for one, so Kraken's default applies.
+     */
+    public static final int BOOK_DEPTH = 10;
+
+    private static final int PRICE_INDEX = 0;
+    private static final int VOLUME_INDEX = 1;
 
     private static final Gson GSON = new Gson().newBuilder().create();
 
@@ -69,15 +73,30 @@ public class WebSocketMessagePayloadHelper {
             return null;
         }
 
-        JsonObject orderBookJsonObject = getOrderBookJsonObject(response);
+        OrderBook book = new OrderBook();
+        loadOrderBook(getOrderBookJsonObject(response), book);
+        return book;
+    }
+
+    /**
+     * Helper method to load the Order Book snapshot from Kraken WebSocket API response message into a given book.
+     * @param response String response message
+     * @param book - representing the order book, its price points are replaced by the snapshot
+     */
+    public static void loadOrderBook(String response, OrderBook book) {
+        // Sanity check - fail-fast
+        if (isEmpty(response)) {
+            return;
+        }
 
-        return buildOrderBook(orderBookJsonObject);
+        loadOrderBook(getOrderBookJsonObject(response), book);
     }
 
     /**
      * Helper method to update the order book from Kraken WebSocket API response message.
      * @param response String response message
      * @param book - representing the order book.
+     * Note: asks and bids changed by the same event are sent as two objects of one message, both are applied.
      */
     public static void updateOrderBook(String response, OrderBook book) {
         // Sanity check - fail-fast
@@ -85,12 +104,17 @@ public class WebSocketMessagePayloadHelper {
             return;
         }
 
-        JsonObject orderBookJsonObject = getOrderBookJsonObject(response);
-
-        if (response.contains(ASKS_UPDATE)) {
-            updateOrderBookAsks(orderBookJsonObject, book);
-        } else if (response.contains(BIDS_UPDATE)) {
-            updateOrderBookBids(orderBookJsonObject, book);
+        for (JsonElement element : GSON.fromJson(response, JsonArray.class)) {
+            if (!element.isJsonObject()) {
+                continue;
+            }
+            JsonObject orderBookJsonObject = element.getAsJsonObject();
+            if (orderBookJsonObject.has(ASKS_UPDATE)) {
+                updateOrderBookAsks(orderBookJsonObject, book);
+            }
+            if (orderBookJsonObject.has(BIDS_UPDATE)) {
+                updateOrderBookBids(orderBookJsonObject, book);
+            }
         }
     }
 
@@ -109,8 +133,9 @@ public class WebSocketMessagePayloadHelper {
             return EMPTY;
         }
 
-        return GSON.fromJson(response, JsonArray.class).get(ORDER_BOOK_PAIR_INDEX_FROM_RESPONSE)
-                .getAsString();
+        // the pair is the last element, after one book object or two for an update of both sides
+        JsonArray message = GSON.fromJson(response, JsonArray.class);
+        return message.get(message.size() - 1).getAsString();
     }
 
     private static JsonObject getOrderBookJsonObject(String response) {
@@ -130,30 +155,29 @@ public class WebSocketMessagePayloadHelper {
         book.updateAsks(updatedElements);
     }
 
-    private static OrderBook buildOrderBook(JsonObject orderBook) {
+    private static void loadOrderBook(JsonObject orderBook, OrderBook book) {
         JsonArray asksList = orderBook.get(ASKS).getAsJsonArray();
         JsonArray bidsList = orderBook.get(BIDS).getAsJsonArray();
 
-        Map<Float, Float> asks = extractVolumePerPriceEntries(asksList);
-        Map<Float, Float> bids = extractVolumePerPriceEntries(bidsList);
-
-        return new OrderBook(asks, bids);
+        book.loadAsks(extractPriceLevelValues(asksList, PRICE_INDEX), extractPriceLevelValues(asksList, VOLUME_INDEX),
+                asksList.size());
+        book.loadBids(extractPriceLevelValues(bidsList, PRICE_INDEX), extractPriceLevelValues(bidsList, VOLUME_INDEX),
+                bidsList.size());
     }
 
     /**
-     * Helper method to extract all of price points, given an array of arrays (price, volume).
+     * Helper method to extract either the prices or the volumes of all price points, given an array of arrays
+     * (price, volume). The snapshot order is kept so that the book can bulk load the already sorted levels.
      * @param priceWithVolumeArray prices/volumes as JSONArray
-     * @return Map of [price, volume] entries
+     * @param valueIndex index of the value to extract within a (price, volume) array
+     * @return array of prices or volumes
      */
-    private static Map<Float, Float> extractVolumePerPriceEntries(JsonArray priceWithVolumeArray) {
-        Map<Float, Float> volumePerPrice = new TreeMap<>();
-
-        for (JsonElement element : priceWithVolumeArray) {
-            OrderBookElement orderBookElement = getOrderBookElement(element);
-            volumePerPrice.put(orderBookElement.getPrice(), orderBookElement.getVolume());
+    private static float[] extractPriceLevelValues(JsonArray priceWithVolumeArray, int valueIndex) {
+        float[] values = new float[priceWithVolumeArray.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = priceWithVolumeArray.get(i).getAsJsonArray().get(valueIndex).getAsFloat();
         }
-
-        return volumePerPrice;
+        return values;
     }
 
     /**
@@ -178,8 +202,8 @@ public class WebSocketMessagePayloadHelper {
 
     private static OrderBookElement getOrderBookElement(JsonElement element) {
         JsonArray orderBookArray = element.getAsJsonArray();
-        Float price = orderBookArray.get(0).getAsFloat();
-        Float volume = orderBookArray.get(1).getAsFloat();
+        Float price = orderBookArray.get(PRICE_INDEX).getAsFloat();
+        Float volume = orderBookArray.get(VOLUME_INDEX).getAsFloat();
         return new OrderBookElement(price, volume);
     }
 }
@@ -0,0 +1,24 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Thin wrapper over the HotSpot specific {@link com.sun.management.ThreadMXBean} to read the number of bytes
+ * allocated by the current thread. Reading the counter itself does not allocate, so it can be used around hot code.
+ */
+public final class AllocationMeter {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private AllocationMeter() {
+    }
+
+    public static boolean isSupported() {
+        return THREAD_MX_BEAN.isThreadAllocatedMemorySupported() && THREAD_MX_BEAN.isThreadAllocatedMemoryEnabled();
+    }
+
+    public static long allocatedBytes() {
+        return THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+    }
+}
@@ -0,0 +1,97 @@
+package benchmark;
+
+import static java.lang.String.format;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Elapsed time and heap allocated by the calling thread over a number of runs of an {@link Operation}. Shared by the
+ * allocation budget tests and the {@code *BenchmarkTest} classes, which only run with {@code mvn test -Pbenchmark}.
+ */
+public final class Measurement {
+
+    private static final Logger LOGGER = LogManager.getLogger(Measurement.class);
+
+    private final long operations;
+    private final long nanos;
+    private final long allocatedBytes;
+
+    private Measurement(long operations, long nanos, long allocatedBytes) {
+        this.operations = operations;
+        this.nanos = nanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * Runs the operation {@code warmUpOperations} times unmeasured, then measures {@code operations} runs. The
+     * operation receives the run number modulo {@code distinctInputs} to pick its prepared input.
+     */
+    public static Measurement measure(Operation operation, int distinctInputs, long warmUpOperations,
+            long operations) {
+        run(operation, distinctInputs, warmUpOperations);
+
+        long allocatedBefore = AllocationMeter.allocatedBytes();
+        long start = System.nanoTime();
+        run(operation, distinctInputs, operations);
+        long nanos = System.nanoTime() - start;
+        // read before instantiating the result, which would otherwise be counted
+        long allocatedBytes = AllocationMeter.allocatedBytes() - allocatedBefore;
+        return new Measurement(operations, nanos, allocatedBytes);
+    }
+
+    /**
+     * Warm-up and measured runs share this loop, so the measured runs do not start over in an interpreted or
+     * on-stack replaced copy of it.
+     */
+    private static void run(Operation operation, int distinctInputs, long operations) {
+        for (long i = 0; i < operations; i++) {
+            operation.run((int) (i % distinctInputs));
+        }
+    }
+
+    /**
+     * Logs a benchmark report line, shown on the console by the test log4j configuration.
+     */
+    public static void report(String format, Object... arguments) {
+        LOGGER.info(format(format, arguments));
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public double nanosPerOperation() {
+        return (double) nanos / operations;
+    }
+
+    public double bytesPerOperation() {
+        return (double) allocatedBytes / operations;
+    }
+
+    /**
+     * Whether the runs allocated more than {@code bytesPerOperation} on average, compared on the total so that a
+     * budget of zero tolerates no allocation at all.
+     */
+    public boolean exceeds(long bytesPerOperation) {
+        return allocatedBytes > bytesPerOperation * operations;
+    }
+
+    /**
+     * How many times faster this measurement ran than the other one.
+     */
+    public double speedUpOver(Measurement other) {
+        return other.nanosPerOperation() / nanosPerOperation();
+    }
+
+    @Override
+    public String toString() {
+        return format("%.0f ns/op, %.1f bytes/op over %d ops", nanosPerOperation(), bytesPerOperation(), operations);
+    }
+
+    @FunctionalInterface
+    public interface Operation {
+
+        void run(int input);
+    }
+}
@@ -0,0 +1,19 @@
+package console;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import org.junit.Test;
+
+public class ConsoleLayoutTest {
+
+    @Test
+    public void givenLayoutNameInAnyCase_whenOf_thenAssertLayout() {
+        assertThat(ConsoleLayout.of("Dashboard"), is(ConsoleLayout.DASHBOARD));
+    }
+
+    @Test
+    public void givenUnknownLayoutName_whenOf_thenAssertDefaultLayout() {
+        assertThat(ConsoleLayout.of("grid"), is(ConsoleLayout.DUMP));
+    }
+}
@@ -0,0 +1,110 @@
+package console;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import model.OrderBook;
+import model.OrderBookElement;
+
+public class TerminalDashboardTest {
+
+    private static final String ETH_TO_USD = "ETH/USD";
+    private static final String BTC_TO_USD = "BTC/USD";
+    private static final String CLEAR_SCREEN = "\u001b[2J";
+
+    private final ByteArrayOutputStream terminal = new ByteArrayOutputStream();
+    private final TerminalDashboard classUnderTest = new TerminalDashboard(new PrintStream(terminal, true), 10, 3);
+
+    @Test
+    public void givenFirstFrame_whenRender_thenScreenIsClearedAndBooksDrawn() {
+        classUnderTest.render(prepareOrderBooks());
+
+        String output = terminalOutput();
+        assertThat(output, startsWith(CLEAR_SCREEN));
+        assertThat(output, containsString(ETH_TO_USD));
+        assertThat(output, containsString(BTC_TO_USD));
+        assertThat(output, containsString("1600.5"));
+        assertThat(classUnderTest.getLastFrameBytes(), is(output.length()));
+    }
+
+    @Test
+    public void givenUnchangedBooks_whenRenderAgain_thenNothingIsWritten() {
+        Map<String, OrderBook> orderBooks = prepareOrderBooks();
+        classUnderTest.render(orderBooks);
+        terminal.reset();
+
+        classUnderTest.render(orderBooks);
+
+        assertThat(classUnderTest.getLastFrameBytes(), is(0));
+        assertThat(terminalOutput(), is(""));
+    }
+
+    @Test
+    public void givenSingleVolumeChange_whenRender_thenOnlyChangedCellsAreWritten() {
+        Map<String, OrderBook> orderBooks = prepareOrderBooks();
+        classUnderTest.render(orderBooks);
+        int firstFrameBytes = classUnderTest.getLastFrameBytes();
+        terminal.reset();
+
+        orderBooks.get(ETH_TO_USD).updateBids(singletonList(new OrderBookElement(1599.5f, 7.25f)));
+        classUnderTest.render(orderBooks);
+
+        String output = terminalOutput();
+        // the volume changes from "2.5" to "7.25", the right aligned trailing "5" cell is unchanged
+        assertThat(output, containsString("7.2"));
+        assertThat(output, not(containsString("7.25")));
+        assertThat(output, not(containsString(CLEAR_SCREEN)));
+        assertThat(output, not(containsString(BTC_TO_USD)));
+        assertThat(classUnderTest.getLastFrameBytes(), lessThan(40));
+        assertThat(classUnderTest.getLastFrameBytes(), lessThan(firstFrameBytes / 20));
+    }
+
+    @Test
+    public void givenNewPair_whenRender_thenExistingPanelsAreNotRedrawn() {
+        Map<String, OrderBook> orderBooks = new TreeMap<>();
+        orderBooks.put(ETH_TO_USD, prepareOrderBook(1600f));
+        classUnderTest.render(orderBooks);
+        terminal.reset();
+
+        orderBooks.put(BTC_TO_USD, prepareOrderBook(16000f));
+        classUnderTest.render(orderBooks);
+
+        String output = terminalOutput();
+        assertThat(output, containsString(BTC_TO_USD));
+        assertThat(output, not(containsString(ETH_TO_USD)));
+    }
+
+    private String terminalOutput() {
+        return terminal.toString(US_ASCII);
+    }
+
+    private static Map<String, OrderBook> prepareOrderBooks() {
+        Map<String, OrderBook> orderBooks = new TreeMap<>();
+        orderBooks.put(ETH_TO_USD, prepareOrderBook(1600f));
+        orderBooks.put(BTC_TO_USD, prepareOrderBook(16000f));
+        return orderBooks;
+    }
+
+    private static OrderBook prepareOrderBook(float midPrice) {
+        Map<Float, Float> asks = new TreeMap<>();
+        Map<Float, Float> bids = new TreeMap<>();
+        for (int level = 0; level < 15; level++) {
+            asks.put(midPrice + 0.5f + level, 1.5f + level);
+            bids.put(midPrice - 0.5f - level, 2.5f + level);
+        }
+        return new OrderBook(asks, bids);
+    }
+}
@@ -0,0 +1,165 @@
+package health;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URI;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.websocket.CloseReason;
+
+import org.junit.Test;
+
+import model.OrderBook;
+
+public class FeedHealthMonitorTest {
+
+    private static final String XBT_TO_USD = "XBT/USD";
+    private static final String ETH_TO_USD = "ETH/USD";
+    private static final long STALE_AFTER_MILLIS = 5_000;
+
+    private long now = TimeUnit.SECONDS.toNanos(100);
+    private final FeedHealthMonitor classUnderTest = new FeedHealthMonitor(STALE_AFTER_MILLIS, () -> now);
+
+    @Test
+    public void givenUpdates_whenCheck_thenAssertRateAndProcessingLagReported() {
+        for (int message = 0; message < 20; message++) {
+            classUnderTest.onMessage(now - 1_000);
+            classUnderTest.onOrderBookUpdate(XBT_TO_USD, prepareOrderBook(100f, 99f), now - 1_000);
+        }
+        now += TimeUnit.SECONDS.toNanos(2);
+
+        classUnderTest.check();
+
+        String metrics = metrics();
+        assertThat(metrics, containsString("orderbook_feed_messages_total 20\n"));
+        assertThat(metrics, containsString("orderbook_messages_total{pair=\"XBT/USD\"} 20\n"));
+        assertThat(metrics, containsString("orderbook_message_rate{pair=\"XBT/USD\"} 10.000000\n"));
+        assertThat(metrics, containsString("orderbook_last_update_age_seconds{pair=\"XBT/USD\"} 2.000000\n"));
+        assertThat(metrics, containsString("orderbook_processing_seconds_sum{pair=\"XBT/USD\"} 0.000020\n"));
+        assertThat(metrics, containsString("orderbook_processing_seconds_count{pair=\"XBT/USD\"} 20\n"));
+        assertThat(classUnderTest.isHealthy(), is(true));
+    }
+
+    @Test
+    public void givenQuietPair_whenCheckAfterThreshold_thenAssertOnlyThatPairIsStaleAndFeedStaysHealthy() {
+        classUnderTest.onOrderBookUpdate(XBT_TO_USD, prepareOrderBook(100f, 99f), now);
+        classUnderTest.onOrderBookUpdate(ETH_TO_USD, prepareOrderBook(10f, 9f), now);
+        now += TimeUnit.MILLISECONDS.toNanos(STALE_AFTER_MILLIS + 1);
+        // heartbeats keep the feed alive
+        classUnderTest.onMessage(now);
+        classUnderTest.onOrderBookUpdate(ETH_TO_USD, prepareOrderBook(10f, 9f), now);
+
+        classUnderTest.check();
+
+        assertThat(classUnderTest.isStale(XBT_TO_USD), is(true));
+        assertThat(classUnderTest.isStale(ETH_TO_USD), is(false));
+        assertThat(metrics(), containsString("orderbook_stale{pair=\"XBT/USD\"} 1\n"));
+        assertThat(metrics(), containsString("orderbook_feed_stale 0\n"));
+        // a quiet market on a live feed
+        assertThat(classUnderTest.isHealthy(), is(true));
+
+        classUnderTest.onOrderBookUpdate(XBT_TO_USD, prepareOrderBook(100f, 99f), now);
+        classUnderTest.check();
+
+        assertThat(classUnderTest.isStale(XBT_TO_USD), is(false));
+    }
+
+    @Test
+    public void givenNoMessages_whenCheckAfterThreshold_thenAssertFeedIsStale() {
+        now += TimeUnit.MILLISECONDS.toNanos(STALE_AFTER_MILLIS + 1);
+
+        classUnderTest.check();
+
+        assertThat(metrics(), containsString("orderbook_feed_stale 1\n"));
+        assertThat(classUnderTest.isHealthy(), is(false));
+    }
+
+    @Test
+    public void givenCrossedOrLockedBook_whenUpdate_thenAssertFlaggedAndCounted() {
+        classUnderTest.onOrderBookUpdate(XBT_TO_USD, prepareOrderBook(100f, 100f), now);
+        classUnderTest.onOrderBookUpdate(XBT_TO_USD, prepareOrderBook(100f, 101f), now);
+
+        String metrics = metrics();
+        assertThat(metrics, containsString("orderbook_crossed{pair=\"XBT/USD\"} 1\n"));
+        assertThat(metrics, containsString("orderbook_crossed_messages_total{pair=\"XBT/USD\"} 2\n"));
+        assertThat(classUnderTest.isHealthy(), is(false));
+
+        classUnderTest.onOrderBookUpdate(XBT_TO_USD, prepareOrderBook(100f, 99f), now);
+
+        assertThat(metrics(), containsString("orderbook_crossed{pair=\"XBT/USD\"} 0\n"));
+    }
+
+    @Test
+    public void givenPairWithQuoteBackslashAndNewline_whenWriteMetrics_thenAssertLabelValueEscaped() {
+        classUnderTest.onOrderBookUpdate("X\"B\\T\nUSD", prepareOrderBook(100f, 99f), now);
+
+        assertThat(metrics(), containsString("orderbook_messages_total{pair=\"X\\\"B\\\\T\\nUSD\"} 1\n"));
+    }
+
+    @Test
+    public void givenConnectionEvents_whenReported_thenAssertCounted() {
+        classUnderTest.onConnectionError(new IOException("reset"));
+        classUnderTest.onConnectionClose(new CloseReason(CloseReason.CloseCodes.GOING_AWAY, "bye"));
+
+        assertThat(metrics(), containsString("orderbook_connection_errors_total 1\n"));
+        assertThat(metrics(), containsString("orderbook_connection_closes_total 1\n"));
+    }
+
+    @Test
+    public void givenMetricsServer_whenScraped_thenAssertPrometheusTextAndHealthStatus() throws IOException {
+        classUnderTest.onOrderBookUpdate(XBT_TO_USD, prepareOrderBook(100f, 99f), now);
+        MetricsHttpServer server = new MetricsHttpServer(0, classUnderTest);
+        server.start();
+        try {
+            HttpURLConnection metrics = open(server, "/metrics");
+            assertThat(metrics.getResponseCode(), is(200));
+            assertThat(metrics.getContentType(), containsString("version=0.0.4"));
+            assertThat(read(metrics), containsString("# TYPE orderbook_messages_total counter\n"));
+
+            HttpURLConnection health = open(server, "/health");
+            assertThat(health.getResponseCode(), is(200));
+            assertThat(health.getContentType(), is("text/plain; charset=utf-8"));
+            classUnderTest.onOrderBookUpdate(XBT_TO_USD, prepareOrderBook(100f, 100f), now);
+            assertThat(open(server, "/health").getResponseCode(), is(503));
+        } finally {
+            server.stop();
+        }
+    }
+
+    private String metrics() {
+        StringBuilder metrics = new StringBuilder();
+        classUnderTest.writeMetrics(metrics);
+        return metrics.toString();
+    }
+
+    private static HttpURLConnection open(MetricsHttpServer server, String path) throws IOException {
+        String host = InetAddress.getLoopbackAddress().getHostAddress();
+        URI uri = URI.create("http://" + host + ":" + server.getPort() + path);
+        return (HttpURLConnection) uri.toURL().openConnection();
+    }
+
+    private static String read(HttpURLConnection connection) throws IOException {
+        try (InputStream in = connection.getInputStream()) {
+            return new String(in.readAllBytes(), UTF_8);
+        }
+    }
+
+    private static OrderBook prepareOrderBook(float bestAsk, float bestBid) {
+        Map<Float, Float> asks = new TreeMap<>();
+        asks.put(bestAsk, 1f);
+        asks.put(bestAsk + 1, 1f);
+        Map<Float, Float> bids = new TreeMap<>();
+        bids.put(bestBid, 1f);
+        bids.put(bestBid - 1, 1f);
+        return new OrderBook(asks, bids);
+    }
+}
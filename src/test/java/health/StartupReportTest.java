@@ -0,0 +1,65 @@
+package health;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import model.OrderBook;
+import websocket.message.IFeedListener;
+
+public class StartupReportTest {
+
+    private static final String XBT_TO_USD = "XBT/USD";
+
+    private final IFeedListener mockFeedListener = mock(IFeedListener.class);
+    private final AtomicInteger completions = new AtomicInteger();
+    private final StartupReport classUnderTest =
+            new StartupReport(mockFeedListener, "warm-up on, AppCDS", 3, completions::incrementAndGet);
+
+    @Test
+    public void givenFirstMessages_whenAllMeasured_thenAssertCompletedOnceAndNotificationsPassedOn() {
+        OrderBook book = new OrderBook();
+
+        for (int message = 0; message < 5; message++) {
+            long received = System.nanoTime();
+            classUnderTest.onMessage(received);
+            classUnderTest.onOrderBookUpdate(XBT_TO_USD, book, received);
+        }
+
+        assertThat(completions.get(), is(1));
+        verify(mockFeedListener, times(5)).onOrderBookUpdate(eq(XBT_TO_USD), eq(book), anyLong());
+        assertThat(classUnderTest.summary(), containsString("First 3 book messages [warm-up on, AppCDS]"));
+    }
+
+    @Test
+    public void givenPhasesAndSubscription_whenFirstBook_thenAssertPhasesReportedSeparately() throws Exception {
+        classUnderTest.phaseDone("warm-up", 5_000);
+        classUnderTest.phaseDone("connect", 300);
+        Thread.sleep(20);
+        classUnderTest.subscriptionSent();
+
+        long received = System.nanoTime();
+        classUnderTest.onOrderBookUpdate(XBT_TO_USD, new OrderBook(), received);
+
+        String summary = classUnderTest.summary();
+        assertThat(summary, containsString("[warm-up on, AppCDS, warm-up 5000 ms, connect 300 ms]"));
+        // measured from the subscription, not from the creation of the report nor the JVM start
+        assertThat(summary, matchesPattern(".*first book [0-9] ms after the subscription.*"));
+    }
+
+    @Test
+    public void givenNoMessages_whenSummary_thenAssertEmptyReport() {
+        assertThat(classUnderTest.summary(), containsString("First 0 book messages"));
+        assertThat(completions.get(), is(0));
+    }
+}
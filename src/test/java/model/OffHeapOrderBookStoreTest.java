@@ -0,0 +1,163 @@
+package model;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import benchmark.AllocationMeter;
+import benchmark.Measurement;
+
+public class OffHeapOrderBookStoreTest {
+
+    private static final String PAIR = "XBT/USD";
+    private static final String OTHER_PAIR = "ETH/USD";
+
+    // a new side holds two regions of 16 price points, 8 bytes each
+    private static final int SLAB_BYTES = 256;
+
+    private static final int BOOK_LEVELS = 100;
+    private static final int DISTINCT_UPDATES = 64;
+    private static final int MEASURED_ROUNDS = 3;
+
+    private final OffHeapOrderBookStore classUnderTest = new OffHeapOrderBookStore(512);
+
+    @Test
+    public void givenReplacedBookStillHeld_whenNewBookIsFilled_thenAssertReplacedBookKeepsItsLevels() {
+        OrderBook replaced = classUnderTest.createOrderBook(PAIR);
+        replaced.loadAsks(new float[] { 16060.0f, 16060.5f }, new float[] { 1.0f, 2.0f }, 2);
+
+        OrderBook book = classUnderTest.createOrderBook(PAIR);
+        book.loadAsks(new float[] { 17000.0f, 17000.5f }, new float[] { 3.0f, 4.0f }, 2);
+
+        assertThat(replaced.getAsks().keySet(), contains(16060.5f, 16060.0f));
+        assertThat(replaced.getAsks().values(), contains(2.0f, 1.0f));
+        assertThat(book.getAsks().keySet(), contains(17000.5f, 17000.0f));
+        assertThat(classUnderTest.getOrderBook(classUnderTest.getPairId(PAIR)), is(sameInstance(book)));
+    }
+
+    @Test
+    public void givenFilledBook_whenBookIsRecreated_thenAssertNewEmptyBookUnderSamePairId() {
+        OrderBook other = classUnderTest.createOrderBook(OTHER_PAIR);
+        other.loadBids(new float[] { 1200.0f, 1200.5f }, new float[] { 5.0f, 6.0f }, 2);
+        OrderBook replaced = classUnderTest.createOrderBook(PAIR);
+        replaced.loadAsks(new float[] { 16060.0f, 16060.5f }, new float[] { 1.0f, 2.0f }, 2);
+        int pairId = classUnderTest.getPairId(PAIR);
+
+        OrderBook book = classUnderTest.createOrderBook(PAIR);
+
+        assertThat(book, is(not(sameInstance(replaced))));
+        assertThat(book.getAsks().isEmpty(), is(true));
+        assertThat(book.getBids().isEmpty(), is(true));
+        assertThat(classUnderTest.getPairId(PAIR), is(pairId));
+        assertThat(classUnderTest.getOrderBook(pairId), is(sameInstance(book)));
+        assertThat(classUnderTest.getOrderBook(classUnderTest.getPairId(OTHER_PAIR)), is(sameInstance(other)));
+        assertThat(other.getBids().keySet(), contains(1200.0f, 1200.5f));
+    }
+
+    @Test
+    public void givenPairWithoutBook_whenGetOrderBook_thenAssertNull() {
+        assertThat(classUnderTest.getOrderBook(classUnderTest.getPairId(PAIR)), is(nullValue()));
+    }
+
+    @Test
+    public void givenSidesOutgrowingTheirRegions_whenLoading_thenAssertSlabsAddedAsNeeded() {
+        OffHeapOrderBookStore store = new OffHeapOrderBookStore(SLAB_BYTES);
+        OrderBook book = store.createOrderBook(PAIR);
+        assertThat(store.getReservedBytes(), is(2L * SLAB_BYTES));
+
+        // 32 price points fill a slab of their own
+        book.loadAsks(prices(20, 100.0f), volumes(20), 20);
+        assertThat(store.getReservedBytes(), is(3L * SLAB_BYTES));
+
+        // 128 price points do not fit a slab and get a dedicated one
+        book.loadBids(prices(BOOK_LEVELS, 50.0f), volumes(BOOK_LEVELS), BOOK_LEVELS);
+        assertThat(store.getReservedBytes(), is(3L * SLAB_BYTES + 128 * 8));
+
+        assertThat(book.getAsks().size(), is(20));
+        assertThat(book.getBestAsk(), is(100.0f));
+        assertThat(book.getBids().size(), is(BOOK_LEVELS));
+        assertThat(book.getBestBid(), is(50.0f + BOOK_LEVELS - 1));
+    }
+
+    @Test
+    public void givenRegionsReleasedByGrownSides_whenCreatingBook_thenAssertRegionsReusedWithoutOverlap() {
+        OffHeapOrderBookStore store = new OffHeapOrderBookStore(SLAB_BYTES);
+        OrderBook grown = store.createOrderBook(PAIR);
+        grown.loadAsks(prices(20, 100.0f), volumes(20), 20);
+        grown.loadBids(prices(20, 50.0f), volumes(20), 20);
+        long reservedBytes = store.getReservedBytes();
+
+        // two of the four regions come back from the grown sides, the other two take a single new slab
+        OrderBook book = store.createOrderBook(OTHER_PAIR);
+        book.loadAsks(prices(16, 1000.0f), volumes(16), 16);
+        book.loadBids(prices(16, 900.0f), volumes(16), 16);
+
+        assertThat(store.getReservedBytes(), is(reservedBytes + SLAB_BYTES));
+        assertThat(grown.getAsks().firstKey(), is(119.0f));
+        assertThat(grown.getAsks().lastKey(), is(100.0f));
+        assertThat(grown.getBids().firstKey(), is(50.0f));
+        assertThat(grown.getBids().lastKey(), is(69.0f));
+        assertThat(book.getAsks().firstKey(), is(1015.0f));
+        assertThat(book.getBids().lastKey(), is(915.0f));
+    }
+
+    @Test
+    public void givenLoadedBook_whenApplyingSteadyStateUpdates_thenAssertNoHeapAllocated() {
+        assumeTrue("Thread allocation counters are not supported by this JVM", AllocationMeter.isSupported());
+        OrderBook book = classUnderTest.createOrderBook(PAIR);
+        book.loadAsks(prices(BOOK_LEVELS, 100.0f), volumes(BOOK_LEVELS), BOOK_LEVELS);
+        book.loadBids(prices(BOOK_LEVELS, 100.0f), volumes(BOOK_LEVELS), BOOK_LEVELS);
+
+        // every even update removes its price points and the following odd one puts them back, in place or merged
+        float[][] updatePrices = new float[DISTINCT_UPDATES][];
+        float[][] updateVolumes = new float[DISTINCT_UPDATES][];
+        for (int update = 0; update < DISTINCT_UPDATES; update++) {
+            int pair = update / 2;
+            int count = pair % 4 == 3 ? 48 : 1 + pair % 8;
+            updatePrices[update] = prices(count, 100.0f + pair % (BOOK_LEVELS - count));
+            updateVolumes[update] = new float[count];
+            if (update % 2 == 1) {
+                Arrays.fill(updateVolumes[update], 1.0f + update);
+            }
+        }
+        Measurement.Operation apply = update -> {
+            book.updateAsks(updatePrices[update], updateVolumes[update], updatePrices[update].length);
+            book.updateBids(updatePrices[update], updateVolumes[update], updatePrices[update].length);
+        };
+
+        // lowest of a few rounds, G1 occasionally books a few hundred bytes of TLAB bookkeeping on the thread
+        long allocatedBytes = Measurement.measure(apply, DISTINCT_UPDATES, 20_000, 50_000).getAllocatedBytes();
+        for (int round = 1; round < MEASURED_ROUNDS; round++) {
+            allocatedBytes = Math.min(allocatedBytes,
+                    Measurement.measure(apply, DISTINCT_UPDATES, 0, 50_000).getAllocatedBytes());
+        }
+
+        assertThat(allocatedBytes, is(0L));
+        assertThat(book.getAsks().size(), is(BOOK_LEVELS));
+        assertThat(book.getBids().size(), is(BOOK_LEVELS));
+    }
+
+    private static float[] prices(int count, float lowest) {
+        float[] prices = new float[count];
+        for (int i = 0; i < count; i++) {
+            prices[i] = lowest + i;
+        }
+        return prices;
+    }
+
+    private static float[] volumes(int count) {
+        float[] volumes = new float[count];
+        for (int i = 0; i < count; i++) {
+            volumes[i] = 1.0f + i;
+        }
+        return volumes;
+    }
+}
@@ -0,0 +1,128 @@
+package model;
+
+import static java.util.Collections.reverseOrder;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import benchmark.Measurement;
+
+/**
+ * Benchmarks the batch merge path of {@link OrderBook} on 1000 level frames against the per price point
+ * {@link TreeMap} approach it replaced, checking the merge is faster and both end up with the same book. Runs with
+ * {@code mvn test -Pbenchmark}; tune with {@code -Dbenchmark.iterations}.
+ */
+public class OrderBookBatchMergeBenchmarkTest {
+
+    private static final int LEVELS = 1000;
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 2_000);
+
+    private final float[] snapshotPrices = new float[LEVELS];
+    private final float[] snapshotVolumes = new float[LEVELS];
+    private final float[][] batchPrices = new float[2][];
+    private final float[][] batchVolumes = new float[2][];
+    private SortedMap<Float, Float> loadedBaseline;
+    private OrderBook loadedBook;
+
+    public OrderBookBatchMergeBenchmarkTest() {
+        Random random = new Random(7);
+        for (int i = 0; i < LEVELS; i++) {
+            snapshotPrices[i] = 16000.0f + i;
+            snapshotVolumes[i] = 1 + random.nextInt(1000) / 100f;
+        }
+        prepareBurstBatches(random);
+    }
+
+    @Test
+    public void given1000LevelSnapshot_whenLoadingOrderBook_thenAssertFasterThanTreeMap() {
+        SortedMap<Float, Float> decodedSnapshot = new TreeMap<>();
+        for (int i = 0; i < LEVELS; i++) {
+            decodedSnapshot.put(snapshotPrices[i], snapshotVolumes[i]);
+        }
+
+        Measurement treeMap = Measurement.measure(iteration -> {
+            loadedBaseline = new TreeMap<>(reverseOrder());
+            loadedBaseline.putAll(decodedSnapshot);
+        }, 1, ITERATIONS, ITERATIONS);
+        Measurement batchMerge = Measurement.measure(iteration -> {
+            loadedBook = new OrderBook();
+            loadedBook.loadAsks(snapshotPrices, snapshotVolumes, LEVELS);
+        }, 1, ITERATIONS, ITERATIONS);
+
+        report("snapshot load", treeMap, batchMerge);
+        assertThat(new ArrayList<>(loadedBook.getAsks().entrySet()), is(new ArrayList<>(loadedBaseline.entrySet())));
+        assertThat(batchMerge.speedUpOver(treeMap), greaterThan(1.0));
+    }
+
+    @Test
+    public void given1000LevelBurstUpdates_whenUpdatingOrderBook_thenAssertFasterThanTreeMap() {
+        SortedMap<Float, Float> baseline = new TreeMap<>(reverseOrder());
+        OrderBook book = new OrderBook();
+        for (int i = 0; i < LEVELS; i++) {
+            baseline.put(snapshotPrices[i], snapshotVolumes[i]);
+        }
+        book.loadAsks(snapshotPrices, snapshotVolumes, LEVELS);
+
+        Measurement treeMap = Measurement.measure(batch -> {
+            float[] prices = batchPrices[batch];
+            float[] volumes = batchVolumes[batch];
+            for (int level = 0; level < prices.length; level++) {
+                if (volumes[level] == 0) {
+                    baseline.remove(prices[level]);
+                } else {
+                    baseline.put(prices[level], volumes[level]);
+                }
+            }
+        }, 2, ITERATIONS, ITERATIONS);
+        Measurement batchMerge = Measurement.measure(
+                batch -> book.updateAsks(batchPrices[batch], batchVolumes[batch], batchPrices[batch].length), 2,
+                ITERATIONS, ITERATIONS);
+
+        report("burst update", treeMap, batchMerge);
+        assertThat(new ArrayList<>(book.getAsks().entrySet()), is(new ArrayList<>(baseline.entrySet())));
+        assertThat(batchMerge.speedUpOver(treeMap), greaterThan(1.0));
+    }
+
+    /**
+     * Two shuffled 1000 level batches over the same price points, each removing a quarter of them which the other
+     * re-inserts, so the book size stays stable however many times they are applied.
+     */
+    private void prepareBurstBatches(Random random) {
+        for (int batch = 0; batch < 2; batch++) {
+            batchPrices[batch] = new float[LEVELS];
+            batchVolumes[batch] = new float[LEVELS];
+            for (int i = 0; i < LEVELS; i++) {
+                boolean removedInThisBatch = i % 4 == batch;
+                // a quarter of the price points sit off the snapshot grid
+                float price = i % 4 < 2 && i % 8 >= 4 ? snapshotPrices[i] + 0.5f : snapshotPrices[i];
+                batchPrices[batch][i] = price;
+                batchVolumes[batch][i] = removedInThisBatch ? 0 : 1 + random.nextInt(1000) / 100f;
+            }
+            shuffle(batchPrices[batch], batchVolumes[batch], random);
+        }
+    }
+
+    private static void shuffle(float[] prices, float[] volumes, Random random) {
+        for (int i = prices.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            float price = prices[i];
+            prices[i] = prices[j];
+            prices[j] = price;
+            float volume = volumes[i];
+            volumes[i] = volumes[j];
+            volumes[j] = volume;
+        }
+    }
+
+    private static void report(String scenario, Measurement treeMap, Measurement batchMerge) {
+        Measurement.report("%s, %d levels: TreeMap %s, batch merge %s (%.1fx)", scenario, LEVELS, treeMap,
+                batchMerge, batchMerge.speedUpOver(treeMap));
+    }
+}
@@ -0,0 +1,423 @@
+package model;
+
+import static java.lang.String.format;
+import static java.util.Collections.emptyList;
+import static java.util.Comparator.reverseOrder;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+/**
+ * Differential fuzzing of {@link OrderBook} against a deliberately naive reference model. Seeded random sequences of
+ * snapshots, updates through both the list and the array API, deletes, republishes and depth truncations are applied
+ * to both books and the full state plus the best bid/ask are compared after every step, for both the on-heap and the
+ * off-heap storage. A failing sequence is shrunk to a minimal reproduction.
+ * <p>
+ * Run a single seed with {@code -Dfuzz.seed=<seed>}, or tune {@code -Dfuzz.seeds} and {@code -Dfuzz.steps}.
+ */
+public class OrderBookDifferentialFuzzTest {
+
+    private static final int SEEDS = Integer.getInteger("fuzz.seeds", 100);
+    private static final int STEPS = Integer.getInteger("fuzz.steps", 500);
+    private static final Long SINGLE_SEED = Long.getLong("fuzz.seed");
+
+    private static final float BASE_PRICE = 16000.0f;
+    private static final float TICK = 0.1f;
+    private static final int PRICE_RANGE = 400;
+    private static final int MAX_DEPTH = 100;
+    private static final String PAIR = "XBT/USD";
+    // small slabs so that the fuzzing crosses slab boundaries and dedicated regions
+    private static final int OFF_HEAP_SLAB_BYTES = 512;
+
+    @Test
+    public void givenRandomOperationSequences_whenAppliedToBothBooks_thenStatesNeverDiverge() {
+        assertNoDivergence("on-heap", () -> pair -> new OrderBook());
+    }
+
+    @Test
+    public void givenRandomOperationSequences_whenAppliedToOffHeapAndReferenceBooks_thenStatesNeverDiverge() {
+        assertNoDivergence("off-heap", () -> new OffHeapOrderBookStore(OFF_HEAP_SLAB_BYTES));
+    }
+
+    private static void assertNoDivergence(String backendName, Supplier<IOrderBookFactory> backend) {
+        if (SINGLE_SEED != null) {
+            assertNoDivergence(backendName, backend, SINGLE_SEED);
+            return;
+        }
+        for (long seed = 1; seed <= SEEDS; seed++) {
+            assertNoDivergence(backendName, backend, seed);
+        }
+    }
+
+    private static void assertNoDivergence(String backendName, Supplier<IOrderBookFactory> backend, long seed) {
+        List<Operation> operations = generate(new Random(seed), STEPS);
+        String divergence = run(operations, backend.get());
+        if (divergence == null) {
+            return;
+        }
+
+        List<Operation> minimal = shrink(operations, backend);
+        fail(format("Seed %d diverged on %s book: %s%nMinimal reproducing sequence (%d of %d operations):%n%s",
+                seed, backendName, run(minimal, backend.get()), minimal.size(), operations.size(),
+                minimal.stream().map(Operation::toString).collect(Collectors.joining(System.lineSeparator()))));
+    }
+
+    /**
+     * Apply the operations to a fresh production and reference book.
+     * @return a description of the first divergence or null if the books agree after every step
+     */
+    private static String run(List<Operation> operations, IOrderBookFactory backend) {
+        OrderBook book = backend.createOrderBook(PAIR);
+        ReferenceOrderBook reference = new ReferenceOrderBook();
+
+        for (int step = 0; step < operations.size(); step++) {
+            Operation operation = operations.get(step);
+            try {
+                book = operation.apply(book, backend);
+            } catch (RuntimeException e) {
+                return format("step %d (%s) threw %s", step, operation, e);
+            }
+            operation.apply(reference);
+
+            String divergence = compare(book, reference);
+            if (divergence != null) {
+                return format("step %d (%s): %s", step, operation, divergence);
+            }
+        }
+        return null;
+    }
+
+    private static String compare(OrderBook book, ReferenceOrderBook reference) {
+        List<Map.Entry<Float, Float>> asks = new ArrayList<>(book.getAsks().entrySet());
+        if (!asks.equals(reference.sortedAsks())) {
+            return format("asks %s != reference %s", asks, reference.sortedAsks());
+        }
+        List<Map.Entry<Float, Float>> bids = new ArrayList<>(book.getBids().entrySet());
+        if (!bids.equals(reference.sortedBids())) {
+            return format("bids %s != reference %s", bids, reference.sortedBids());
+        }
+        if (!Objects.equals(book.getBestAsk(), reference.bestAsk())) {
+            return format("best ask %s != reference %s", book.getBestAsk(), reference.bestAsk());
+        }
+        if (!Objects.equals(book.getBestBid(), reference.bestBid())) {
+            return format("best bid %s != reference %s", book.getBestBid(), reference.bestBid());
+        }
+        return null;
+    }
+
+    /**
+     * Shrink the failing sequence first by dropping whole operations, then by dropping price levels from the
+     * remaining snapshots and updates. Every subsequence is a valid input as the books start empty.
+     */
+    private static List<Operation> shrink(List<Operation> operations, Supplier<IOrderBookFactory> backend) {
+        List<Operation> current = shrink(operations, candidate -> run(candidate, backend.get()) != null);
+        for (int i = 0; i < current.size(); i++) {
+            int index = i;
+            List<Operation> sequence = new ArrayList<>(current);
+            Operation operation = sequence.get(index);
+            if (operation.type == OperationType.TRUNCATE) {
+                continue;
+            }
+            List<OrderBookElement> levels = shrink(operation.levels, candidate -> {
+                sequence.set(index, operation.withLevels(candidate, operation.bidLevels));
+                return run(sequence, backend.get()) != null;
+            });
+            List<OrderBookElement> bidLevels = shrink(operation.bidLevels, candidate -> {
+                sequence.set(index, operation.withLevels(levels, candidate));
+                return run(sequence, backend.get()) != null;
+            });
+            sequence.set(index, operation.withLevels(levels, bidLevels));
+            current = sequence;
+        }
+        return current;
+    }
+
+    /**
+     * Delta debugging style shrinking: repeatedly drop chunks of elements, halving the chunk size, while the
+     * candidate keeps failing.
+     */
+    private static <T> List<T> shrink(List<T> elements, Predicate<List<T>> failing) {
+        List<T> current = new ArrayList<>(elements);
+        int chunk = Math.max(1, current.size() / 2);
+        while (!current.isEmpty()) {
+            boolean reduced = false;
+            for (int start = 0; start < current.size(); ) {
+                List<T> candidate = new ArrayList<>(current.subList(0, start));
+                candidate.addAll(current.subList(Math.min(current.size(), start + chunk), current.size()));
+                if (failing.test(candidate)) {
+                    current = candidate;
+                    reduced = true;
+                } else {
+                    start += chunk;
+                }
+            }
+            if (chunk == 1 && !reduced) {
+                break;
+            }
+            chunk = Math.max(1, chunk / 2);
+        }
+        return current;
+    }
+
+    private static List<Operation> generate(Random random, int steps) {
+        List<Operation> operations = new ArrayList<>(steps);
+        ReferenceOrderBook model = new ReferenceOrderBook();
+        operations.add(snapshot(random));
+        operations.get(0).apply(model);
+
+        for (int step = 1; step < steps; step++) {
+            int dice = random.nextInt(100);
+            Operation operation;
+            if (dice < 3) {
+                operation = snapshot(random);
+            } else if (dice < 8) {
+                operation = new Operation(OperationType.TRUNCATE, random.nextBoolean(), emptyList(),
+                        emptyList(), 1 + random.nextInt(MAX_DEPTH));
+            } else {
+                operation = update(random, model);
+            }
+            operation.apply(model);
+            operations.add(operation);
+        }
+        return operations;
+    }
+
+    private static Operation snapshot(Random random) {
+        List<OrderBookElement> asks = new ArrayList<>();
+        List<OrderBookElement> bids = new ArrayList<>();
+        int depth = random.nextInt(MAX_DEPTH + 1);
+        for (int i = 0; i < depth; i++) {
+            asks.add(new OrderBookElement(randomPrice(random), randomVolume(random)));
+            bids.add(new OrderBookElement(randomPrice(random), randomVolume(random)));
+        }
+        // mostly in the Kraken snapshot order: asks ascending and bids descending
+        if (random.nextInt(4) != 0) {
+            asks.sort(Comparator.comparing(OrderBookElement::getPrice));
+            bids.sort(Comparator.comparing(OrderBookElement::getPrice, reverseOrder()));
+        }
+        return new Operation(OperationType.SNAPSHOT, random.nextBoolean(), asks, bids, 0);
+    }
+
+    /**
+     * A batch of level changes for one side, mixing inserts, volume changes, deletes of known and unknown price
+     * points, republishes of unchanged levels and repeated price points within the same batch.
+     */
+    private static Operation update(Random random, ReferenceOrderBook model) {
+        boolean asks = random.nextBoolean();
+        List<Float> known = new ArrayList<>((asks ? model.asks : model.bids).keySet());
+        List<OrderBookElement> levels = new ArrayList<>();
+
+        int size = random.nextInt(10) == 0 ? 1 + random.nextInt(200) : 1 + random.nextInt(4);
+        for (int i = 0; i < size; i++) {
+            boolean existing = !known.isEmpty() && random.nextBoolean();
+            float price = existing ? known.get(random.nextInt(known.size())) : randomPrice(random);
+            int kind = random.nextInt(10);
+            if (kind < 3) {
+                levels.add(new OrderBookElement(price, 0f));
+            } else if (kind < 4 && existing) {
+                Map<Float, Float> side = asks ? model.asks : model.bids;
+                levels.add(new OrderBookElement(price, side.get(price)));
+            } else {
+                levels.add(new OrderBookElement(price, randomVolume(random)));
+            }
+            if (kind == 9) {
+                levels.add(new OrderBookElement(price, random.nextBoolean() ? 0f : randomVolume(random)));
+            }
+        }
+        OperationType type = random.nextBoolean() ? OperationType.UPDATE : OperationType.ARRAY_UPDATE;
+        return new Operation(type, asks, levels, emptyList(), 0);
+    }
+
+    private static float randomPrice(Random random) {
+        return BASE_PRICE + TICK * random.nextInt(PRICE_RANGE);
+    }
+
+    private static float randomVolume(Random random) {
+        return 0.00000001f + random.nextInt(100_000) / 1000f;
+    }
+
+    private enum OperationType {
+        SNAPSHOT,
+        UPDATE,
+        ARRAY_UPDATE,
+        TRUNCATE
+    }
+
+    private static final class Operation {
+
+        private final OperationType type;
+        /**
+         * The updated side, or for snapshots whether the book is created anew rather than reloaded
+         */
+        private final boolean asks;
+        /**
+         * The updated side levels or the snapshot asks
+         */
+        private final List<OrderBookElement> levels;
+        private final List<OrderBookElement> bidLevels;
+        private final int depth;
+
+        Operation(OperationType type, boolean asks, List<OrderBookElement> levels, List<OrderBookElement> bidLevels,
+                int depth) {
+            this.type = type;
+            this.asks = asks;
+            this.levels = levels;
+            this.bidLevels = bidLevels;
+            this.depth = depth;
+        }
+
+        Operation withLevels(List<OrderBookElement> levels, List<OrderBookElement> bidLevels) {
+            return new Operation(type, asks, levels, bidLevels, depth);
+        }
+
+        OrderBook apply(OrderBook book, IOrderBookFactory backend) {
+            switch (type) {
+            case SNAPSHOT:
+                OrderBook snapshot = asks ? backend.createOrderBook(PAIR) : book;
+                snapshot.loadAsks(prices(levels), volumes(levels), levels.size());
+                snapshot.loadBids(prices(bidLevels), volumes(bidLevels), bidLevels.size());
+                return snapshot;
+            case TRUNCATE:
+                book.truncate(depth);
+                return book;
+            case ARRAY_UPDATE:
+                // the arrays are longer than the count, as decode buffers are
+                float[] prices = Arrays.copyOf(prices(levels), levels.size() + 1);
+                float[] volumes = Arrays.copyOf(volumes(levels), levels.size() + 1);
+                prices[levels.size()] = BASE_PRICE;
+                if (asks) {
+                    book.updateAsks(prices, volumes, levels.size());
+                } else {
+                    book.updateBids(prices, volumes, levels.size());
+                }
+                return book;
+            default:
+                if (asks) {
+                    book.updateAsks(levels);
+                } else {
+                    book.updateBids(levels);
+                }
+                return book;
+            }
+        }
+
+        void apply(ReferenceOrderBook book) {
+            switch (type) {
+            case SNAPSHOT:
+                book.asks.clear();
+                book.bids.clear();
+                book.asks.putAll(snapshotSide(levels));
+                book.bids.putAll(snapshotSide(bidLevels));
+                break;
+            case TRUNCATE:
+                book.truncate(depth);
+                break;
+            default:
+                for (OrderBookElement level : levels) {
+                    book.apply(asks ? book.asks : book.bids, level);
+                }
+            }
+        }
+
+        private static float[] prices(List<OrderBookElement> levels) {
+            float[] prices = new float[levels.size()];
+            for (int i = 0; i < prices.length; i++) {
+                prices[i] = levels.get(i).getPrice();
+            }
+            return prices;
+        }
+
+        private static float[] volumes(List<OrderBookElement> levels) {
+            float[] volumes = new float[levels.size()];
+            for (int i = 0; i < volumes.length; i++) {
+                volumes[i] = levels.get(i).getVolume();
+            }
+            return volumes;
+        }
+
+        private static Map<Float, Float> snapshotSide(List<OrderBookElement> levels) {
+            Map<Float, Float> side = new HashMap<>();
+            for (OrderBookElement level : levels) {
+                side.put(level.getPrice(), level.getVolume());
+            }
+            return side;
+        }
+
+        @Override
+        public String toString() {
+            switch (type) {
+            case SNAPSHOT:
+                return format("SNAPSHOT %s asks=%s bids=%s", asks ? "new book" : "reload", describe(levels),
+                        describe(bidLevels));
+            case TRUNCATE:
+                return format("TRUNCATE depth=%d", depth);
+            default:
+                return format("%s %s %s", type, asks ? "asks" : "bids", describe(levels));
+            }
+        }
+
+        private static String describe(List<OrderBookElement> levels) {
+            return levels.stream().map(level -> format("[%s, %s]", level.getPrice(), level.getVolume()))
+                    .collect(Collectors.joining(", "));
+        }
+    }
+
+    /**
+     * Simplest possible book: unordered maps, sorting and scanning on every read.
+     */
+    private static final class ReferenceOrderBook {
+
+        private final Map<Float, Float> asks = new HashMap<>();
+        private final Map<Float, Float> bids = new HashMap<>();
+
+        void apply(Map<Float, Float> side, OrderBookElement level) {
+            if (level.getVolume() == 0) {
+                side.remove(level.getPrice());
+            } else {
+                side.put(level.getPrice(), level.getVolume());
+            }
+        }
+
+        void truncate(int depth) {
+            List<Float> asksByQuality = asks.keySet().stream().sorted().collect(Collectors.toList());
+            asksByQuality.subList(Math.min(depth, asksByQuality.size()), asksByQuality.size())
+                    .forEach(asks::remove);
+            List<Float> bidsByQuality = bids.keySet().stream().sorted(reverseOrder()).collect(Collectors.toList());
+            bidsByQuality.subList(Math.min(depth, bidsByQuality.size()), bidsByQuality.size())
+                    .forEach(bids::remove);
+        }
+
+        Float bestAsk() {
+            return asks.keySet().stream().min(Float::compare).orElse(null);
+        }
+
+        Float bestBid() {
+            return bids.keySet().stream().max(Float::compare).orElse(null);
+        }
+
+        /**
+         * @return asks in the order the production book exposes them: from highest to lowest
+         */
+        List<Map.Entry<Float, Float>> sortedAsks() {
+            return asks.entrySet().stream().sorted(Map.Entry.comparingByKey(reverseOrder()))
+                    .map(entry -> Map.entry(entry.getKey(), entry.getValue())).collect(Collectors.toList());
+        }
+
+        List<Map.Entry<Float, Float>> sortedBids() {
+            return bids.entrySet().stream().sorted(Map.Entry.comparingByKey())
+                    .map(entry -> Map.entry(entry.getKey(), entry.getValue())).collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package model;
+
+import static java.util.Collections.reverseOrder;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class OrderBookSideTest {
+
+    private static final float[] PRICES = { 100.0f, 100.5f, 101.0f, 101.5f, 102.0f };
+    private static final float[] VOLUMES = { 1.0f, 2.0f, 3.0f, 4.0f, 5.0f };
+
+    @Test
+    public void givenAskSide_whenRangeViews_thenAssertSameAsTreeMapRanges() {
+        OrderBookSide asks = prepareSide(true);
+        TreeMap<Float, Float> reference = prepareReference(reverseOrder());
+
+        assertSameEntries(asks.subMap(101.5f, 100.5f), reference.subMap(101.5f, 100.5f));
+        assertSameEntries(asks.subMap(101.7f, 100.2f), reference.subMap(101.7f, 100.2f));
+        assertSameEntries(asks.headMap(101.0f), reference.headMap(101.0f));
+        assertSameEntries(asks.tailMap(101.0f), reference.tailMap(101.0f));
+        assertSameEntries(asks.tailMap(101.5f).headMap(100.5f), reference.tailMap(101.5f).headMap(100.5f));
+        assertThat(asks.headMap(101.0f).firstKey(), is(102.0f));
+        assertThat(asks.headMap(101.0f).lastKey(), is(101.5f));
+    }
+
+    @Test
+    public void givenBidSide_whenRangeViews_thenAssertSameAsTreeMapRanges() {
+        OrderBookSide bids = prepareSide(false);
+        TreeMap<Float, Float> reference = prepareReference(null);
+
+        assertSameEntries(bids.subMap(100.5f, 101.5f), reference.subMap(100.5f, 101.5f));
+        assertSameEntries(bids.subMap(100.2f, 101.7f), reference.subMap(100.2f, 101.7f));
+        assertSameEntries(bids.headMap(101.0f), reference.headMap(101.0f));
+        assertSameEntries(bids.tailMap(101.0f), reference.tailMap(101.0f));
+        assertSameEntries(bids.headMap(101.5f).tailMap(100.5f), reference.headMap(101.5f).tailMap(100.5f));
+        assertThat(bids.tailMap(101.0f).firstKey(), is(101.0f));
+        assertThat(bids.tailMap(101.0f).lastKey(), is(102.0f));
+    }
+
+    @Test
+    public void givenRangeView_whenSideUpdated_thenAssertViewReflectsUpdate() {
+        OrderBookSide bids = prepareSide(false);
+        SortedMap<Float, Float> view = bids.subMap(100.5f, 101.5f);
+
+        bids.update(new float[] { 100.75f, 101.0f }, new float[] { 7.0f, 0 }, 2);
+
+        assertThat(new ArrayList<>(view.keySet()), contains(100.5f, 100.75f));
+        assertThat(view.get(100.75f), is(7.0f));
+        assertThat(view.get(102.0f), is(nullValue()));
+        assertThat(view.containsKey(101.0f), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void givenKeysOutOfSideOrder_whenSubMap_thenAssertRejected() {
+        prepareSide(true).subMap(100.5f, 101.5f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void givenKeyOutsideView_whenNestedRange_thenAssertRejected() {
+        prepareSide(false).subMap(100.5f, 101.5f).headMap(102.0f);
+    }
+
+    private static OrderBookSide prepareSide(boolean descending) {
+        OrderBookSide side = new OrderBookSide(descending, HeapPriceLevels::new);
+        side.load(PRICES, VOLUMES, PRICES.length);
+        return side;
+    }
+
+    private static TreeMap<Float, Float> prepareReference(Comparator<Float> comparator) {
+        TreeMap<Float, Float> reference = new TreeMap<>(comparator);
+        for (int i = 0; i < PRICES.length; i++) {
+            reference.put(PRICES[i], VOLUMES[i]);
+        }
+        return reference;
+    }
+
+    private static void assertSameEntries(SortedMap<Float, Float> actual, SortedMap<Float, Float> expected) {
+        assertThat(Arrays.toString(actual.entrySet().toArray()), is(Arrays.toString(expected.entrySet().toArray())));
+        assertThat(actual.size(), is(expected.size()));
+    }
+}
@@ -0,0 +1,191 @@
+package model;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class PriceBucketViewTest {
+
+    private static final String XBT_TO_USD = "XBT/USD";
+
+    private final PriceBucketView classUnderTest = new PriceBucketView(10f);
+
+    @Test
+    public void givenExistingBook_whenAddListener_thenAssertLevelsAggregatedIntoBuckets() {
+        OrderBook book = prepareOrderBook();
+
+        book.addLevelChangeListener(classUnderTest);
+
+        assertThat(classUnderTest.getAsks().keySet(), contains(20f, 10f));
+        assertThat(classUnderTest.getAskVolume(15f), is(3f));
+        assertThat(classUnderTest.getAskVolume(21f), is(4f));
+        assertThat(classUnderTest.getBids().keySet(), contains(0f));
+        assertThat(classUnderTest.getBidVolume(9.5f), is(3f));
+    }
+
+    @Test
+    public void givenUpdatesAndRemovals_whenUpdateBook_thenAssertBucketsFollowVolumeDeltas() {
+        OrderBook book = prepareOrderBook();
+        book.addLevelChangeListener(classUnderTest);
+
+        book.updateAsks(singletonList(new OrderBookElement(11f, 5f)));
+        book.updateAsks(new float[] { 12f, 25f, 26f }, new float[] { 0f, 0f, 1.5f }, 3);
+
+        assertThat(classUnderTest.getAskVolume(10f), is(5f));
+        assertThat(classUnderTest.getAskVolume(20f), is(1.5f));
+
+        book.updateAsks(new float[] { 11f, 26f }, new float[] { 0f, 0f }, 2);
+
+        // empty buckets are dropped
+        assertThat(classUnderTest.getAsks().isEmpty(), is(true));
+    }
+
+    @Test
+    public void givenSnapshotAndTruncate_whenApplied_thenAssertBucketsMatchBook() {
+        OrderBook book = prepareOrderBook();
+        book.addLevelChangeListener(classUnderTest);
+
+        book.loadBids(new float[] { 3f, 7f, 13f }, new float[] { 1f, 1f, 1f }, 3);
+        book.truncate(1);
+
+        assertThat(classUnderTest.getBids(), is(aggregate(book.getBids(), 10f)));
+        assertThat(classUnderTest.getAsks(), is(aggregate(book.getAsks(), 10f)));
+    }
+
+    @Test
+    public void givenRandomUpdates_whenApplied_thenAssertBucketsMatchFullReaggregation() {
+        Random random = new Random(42);
+        OrderBook book = new OrderBook();
+        book.addLevelChangeListener(classUnderTest);
+
+        for (int step = 0; step < 2000; step++) {
+            int count = 1 + random.nextInt(8);
+            float[] prices = new float[count];
+            float[] volumes = new float[count];
+            for (int i = 0; i < count; i++) {
+                prices[i] = 1000 + random.nextInt(200) * 0.5f;
+                volumes[i] = random.nextInt(4) == 0 ? 0 : random.nextInt(1000) / 100f;
+            }
+            if (random.nextBoolean()) {
+                book.updateAsks(prices, volumes, count);
+            } else {
+                book.updateBids(prices, volumes, count);
+            }
+            if (step % 100 == 0) {
+                book.truncate(50);
+            }
+        }
+
+        assertMatches(classUnderTest.getAsks(), aggregate(book.getAsks(), 10f));
+        assertMatches(classUnderTest.getBids(), aggregate(book.getBids(), 10f));
+    }
+
+    @Test
+    public void givenBucketsEmptiedAndRefilledAcrossRebuilds_whenApplied_thenAssertBucketsMatchBook() {
+        OrderBook book = new OrderBook();
+        book.addLevelChangeListener(classUnderTest);
+
+        // the book walks up the price scale, leaving emptied buckets behind
+        for (int bucket = 0; bucket < 500; bucket++) {
+            book.updateBids(new float[] { bucket * 10f + 1, bucket * 10f + 2 }, new float[] { 1f, 2f }, 2);
+            if (bucket >= 5) {
+                book.updateBids(new float[] { (bucket - 5) * 10f + 1, (bucket - 5) * 10f + 2 },
+                        new float[] { 0f, 0f }, 2);
+            }
+        }
+        book.updateBids(new float[] { 4951f }, new float[] { 0.5f }, 1);
+
+        assertThat(classUnderTest.getBids(), is(aggregate(book.getBids(), 10f)));
+        assertThat(classUnderTest.getBidVolume(4955f), is(2.5f));
+        assertThat(classUnderTest.getBidVolume(15f), is(0f));
+    }
+
+    @Test
+    public void givenSteadyStateChanges_whenApplied_thenAssertNothingIsAllocated() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        for (int i = 0; i < 10_000; i++) {
+            classUnderTest.onLevelChange(i % 2 == 0, 1000 + i % 64, 0, 1f);
+            classUnderTest.onLevelChange(i % 2 == 0, 1000 + i % 64, 1f, 0);
+        }
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 10_000; i++) {
+            classUnderTest.onLevelChange(i % 2 == 0, 1000 + i % 64, 0, 1f);
+            classUnderTest.onLevelChange(i % 2 == 0, 1000 + i % 64, 1f, 0);
+        }
+
+        assertThat(threads.getCurrentThreadAllocatedBytes() - before, is(0L));
+    }
+
+    @Test
+    public void givenRegisteredViews_whenBookIsCreated_thenAssertViewsFollowTheNewBook() {
+        PriceBucketRegistry registry = new PriceBucketRegistry(pair -> new OrderBook(), 100f);
+        PriceBucketView view = registry.register(XBT_TO_USD, 10f);
+
+        OrderBook first = registry.createOrderBook(XBT_TO_USD);
+        first.updateAsks(singletonList(new OrderBookElement(15f, 1f)));
+        OrderBook second = registry.createOrderBook(XBT_TO_USD);
+        second.updateAsks(singletonList(new OrderBookElement(25f, 2f)));
+        // the replaced book is no longer followed
+        first.updateAsks(singletonList(new OrderBookElement(35f, 3f)));
+
+        assertThat(registry.register(XBT_TO_USD, 10f), sameInstance(view));
+        assertThat(registry.getViews(XBT_TO_USD).size(), is(2));
+        assertThat(view.getAsks(), is(aggregate(second.getAsks(), 10f)));
+        assertThat(registry.getViews(XBT_TO_USD).get(1).getAskVolume(25f), is(2f));
+    }
+
+    @Test
+    public void givenExistingBook_whenRegisterView_thenAssertViewFollowsTheBook() {
+        PriceBucketRegistry registry = new PriceBucketRegistry(pair -> new OrderBook());
+        OrderBook book = registry.createOrderBook(XBT_TO_USD);
+        book.updateAsks(new float[] { 15f, 16f }, new float[] { 1f, 2f }, 2);
+
+        PriceBucketView view = registry.register(XBT_TO_USD, 10f);
+        book.updateAsks(singletonList(new OrderBookElement(25f, 4f)));
+
+        assertThat(view.getAsks(), is(aggregate(book.getAsks(), 10f)));
+        assertThat(view.getAskVolume(15f), is(3f));
+    }
+
+    private static void assertMatches(SortedMap<Float, Float> actual, SortedMap<Float, Float> expected) {
+        assertThat(actual.keySet(), is(expected.keySet()));
+        for (Map.Entry<Float, Float> bucket : expected.entrySet()) {
+            assertThat((double) actual.get(bucket.getKey()), closeTo(bucket.getValue(), 1e-3));
+        }
+    }
+
+    private static SortedMap<Float, Float> aggregate(SortedMap<Float, Float> levels, float bucketSize) {
+        SortedMap<Float, Float> buckets = new TreeMap<>(levels.comparator());
+        for (Map.Entry<Float, Float> level : levels.entrySet()) {
+            float bucket = (float) (Math.floor(level.getKey() / bucketSize) * bucketSize);
+            buckets.merge(bucket, level.getValue(), Float::sum);
+        }
+        return buckets;
+    }
+
+    private static OrderBook prepareOrderBook() {
+        Map<Float, Float> asks = new TreeMap<>();
+        asks.put(11f, 1f);
+        asks.put(12f, 2f);
+        asks.put(25f, 4f);
+        Map<Float, Float> bids = new TreeMap<>();
+        bids.put(8f, 1f);
+        bids.put(9f, 2f);
+        return new OrderBook(asks, bids);
+    }
+}
@@ -0,0 +1,301 @@
+package sink;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import model.OrderBook;
+import websocket.message.IFeedListener;
+
+public class SinkRuntimeTest {
+
+    private static final String XBT_TO_USD = "XBT/USD";
+    private static final String ETH_TO_USD = "ETH/USD";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final IFeedListener mockFeedListener = mock(IFeedListener.class);
+    private final SinkRuntime classUnderTest = new SinkRuntime(mockFeedListener, 2, 5_000);
+
+    @After
+    public void tearDown() {
+        classUnderTest.close();
+    }
+
+    @Test
+    public void givenSinksPerPair_whenBookUpdated_thenAssertChangeDeliveredToMatchingSinksOnly() throws Exception {
+        List<BookChange> all = new CopyOnWriteArrayList<>();
+        List<BookChange> eth = new CopyOnWriteArrayList<>();
+        classUnderTest.register("all", null, all::add, 16);
+        classUnderTest.register("eth", ETH_TO_USD, eth::add, 16);
+        OrderBook book = prepareOrderBook(100f);
+
+        classUnderTest.onOrderBookUpdate(XBT_TO_USD, book, 1L);
+        classUnderTest.close();
+
+        assertThat(all.size(), is(1));
+        assertThat(eth.isEmpty(), is(true));
+        BookChange change = all.get(0);
+        assertThat(change.getPair(), is(XBT_TO_USD));
+        assertThat(change.getAskCount(), is(2));
+        assertThat(change.getAskPrice(0), is(100f));
+        assertThat(change.getAskPrice(1), is(101f));
+        assertThat(change.getBidPrice(0), is(99f));
+        assertThat(change.getBidVolume(0), is(2f));
+        verify(mockFeedListener).onOrderBookUpdate(eq(XBT_TO_USD), eq(book), anyLong());
+    }
+
+    @Test
+    public void givenBlockedSink_whenUpdatesKeepComing_thenAssertReadThreadNeverBlocksAndOldestAreDropped()
+            throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Float> delivered = new CopyOnWriteArrayList<>();
+        SinkStats stats = classUnderTest.register("slow", null, change -> {
+            release.await();
+            delivered.add(change.getAskPrice(0));
+        }, 4);
+
+        long start = System.nanoTime();
+        for (int update = 0; update < 100; update++) {
+            classUnderTest.onOrderBookUpdate(XBT_TO_USD, prepareOrderBook(1000f + update), 1L);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        release.countDown();
+        classUnderTest.close();
+
+        assertThat(elapsedMillis, lessThan(1_000L));
+        assertThat(stats.getOffered(), is(100L));
+        assertThat(stats.getDropped(), greaterThan(0L));
+        assertThat(stats.getDelivered() + stats.getDropped(), is(100L));
+        assertThat(stats.getMaxBacklog(), is(4));
+        // the latest change always makes it
+        assertThat(delivered.get(delivered.size() - 1), is(1099f));
+    }
+
+    @Test
+    public void givenPendingChanges_whenClose_thenAssertDrainedThenSinkClosed() throws Exception {
+        AtomicInteger delivered = new AtomicInteger();
+        AtomicBoolean closedAfterDrain = new AtomicBoolean();
+        classUnderTest.register("draining", null, new IOrderBookSink() {
+
+            @Override
+            public void accept(BookChange change) throws InterruptedException {
+                Thread.sleep(5);
+                delivered.incrementAndGet();
+            }
+
+            @Override
+            public void close() {
+                closedAfterDrain.set(delivered.get() == 10);
+            }
+        }, 16);
+
+        for (int update = 0; update < 10; update++) {
+            classUnderTest.onOrderBookUpdate(XBT_TO_USD, prepareOrderBook(100f), 1L);
+        }
+        classUnderTest.close();
+
+        assertThat(delivered.get(), is(10));
+        assertThat(closedAfterDrain.get(), is(true));
+    }
+
+    @Test
+    public void givenManyStuckSinks_whenClose_thenAssertAllWaitedForAgainstOneDeadline() {
+        SinkRuntime runtime = new SinkRuntime(mockFeedListener, 2, 200);
+        List<SinkStats> stats = new CopyOnWriteArrayList<>();
+        for (int sink = 0; sink < 50; sink++) {
+            stats.add(runtime.register("stuck-" + sink, null, change -> Thread.sleep(60_000), 1));
+        }
+        // full mailboxes behind the stuck deliveries
+        for (int update = 0; update < 3; update++) {
+            runtime.onOrderBookUpdate(XBT_TO_USD, prepareOrderBook(100f), 1L);
+        }
+
+        long start = System.nanoTime();
+        runtime.close();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(elapsedMillis, lessThan(2_000L));
+        assertThat(stats.get(0).getDropped(), greaterThan(0L));
+    }
+
+    @Test
+    public void givenIdleSinks_whenClose_thenAssertWokenUpAndClosedRightAway() {
+        AtomicInteger closedSinks = new AtomicInteger();
+        for (int sink = 0; sink < 10; sink++) {
+            classUnderTest.register("idle-" + sink, null, new IOrderBookSink() {
+
+                @Override
+                public void accept(BookChange change) {
+                }
+
+                @Override
+                public void close() {
+                    closedSinks.incrementAndGet();
+                }
+            }, 4);
+        }
+
+        long start = System.nanoTime();
+        classUnderTest.close();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // far below the 5 s grace period, the waiting sinks are woken up rather than timed out
+        assertThat(elapsedMillis, lessThan(1_000L));
+        assertThat(closedSinks.get(), is(10));
+    }
+
+    @Test
+    public void givenSinkIgnoringInterrupts_whenClose_thenAssertCloseReturnsAfterBoundedWait() throws Exception {
+        SinkRuntime runtime = new SinkRuntime(mockFeedListener, 2, 100);
+        AtomicBoolean released = new AtomicBoolean();
+        SinkStats stats = runtime.register("deaf", null, change -> {
+            while (!released.get()) {
+                Thread.onSpinWait();
+            }
+        }, 1);
+        runtime.onOrderBookUpdate(XBT_TO_USD, prepareOrderBook(100f), 1L);
+        runtime.onOrderBookUpdate(XBT_TO_USD, prepareOrderBook(101f), 1L);
+
+        try {
+            long start = System.nanoTime();
+            runtime.close();
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            // the grace period plus the bounded wait after the interrupt
+            assertThat(elapsedMillis, lessThan(2_000L));
+            assertThat(stats.getDelivered(), is(0L));
+        } finally {
+            released.set(true);
+        }
+    }
+
+    @Test
+    public void givenFullMailboxWhileClosing_whenDrained_thenAssertWorkerStops() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean closed = new AtomicBoolean();
+        classUnderTest.register("slow", null, new IOrderBookSink() {
+
+            @Override
+            public void accept(BookChange change) throws InterruptedException {
+                release.await();
+            }
+
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        }, 2);
+        for (int update = 0; update < 10; update++) {
+            classUnderTest.onOrderBookUpdate(XBT_TO_USD, prepareOrderBook(100f), 1L);
+        }
+
+        Thread closing = new Thread(classUnderTest::close);
+        closing.start();
+        // changes dropped from a full mailbox while closing never drop the stop signal
+        for (int update = 0; update < 10; update++) {
+            classUnderTest.onOrderBookUpdate(XBT_TO_USD, prepareOrderBook(100f), 1L);
+        }
+        release.countDown();
+        closing.join(5_000);
+
+        assertThat(closing.isAlive(), is(false));
+        assertThat(closed.get(), is(true));
+    }
+
+    @Test
+    public void givenFailingSink_whenDelivering_thenAssertFailureCountedAndSinkKeepsRunning() {
+        AtomicInteger calls = new AtomicInteger();
+        SinkStats stats = classUnderTest.register("failing", null, change -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IOException("disk full");
+            }
+        }, 16);
+
+        classUnderTest.onOrderBookUpdate(XBT_TO_USD, prepareOrderBook(100f), 1L);
+        classUnderTest.onOrderBookUpdate(XBT_TO_USD, prepareOrderBook(100f), 1L);
+        classUnderTest.close();
+
+        assertThat(stats.getFailed(), is(1L));
+        assertThat(stats.getDelivered(), is(1L));
+    }
+
+    @Test
+    public void givenHundredsOfSlowSinks_whenUpdated_thenAssertAllDelivered() {
+        AtomicInteger delivered = new AtomicInteger();
+        for (int sink = 0; sink < 300; sink++) {
+            classUnderTest.register("slow-" + sink, null, change -> {
+                Thread.sleep(1);
+                delivered.incrementAndGet();
+            }, 64);
+        }
+
+        for (int update = 0; update < 20; update++) {
+            classUnderTest.onOrderBookUpdate(XBT_TO_USD, prepareOrderBook(100f), 1L);
+        }
+        classUnderTest.close();
+
+        assertThat(delivered.get(), is(300 * 20));
+    }
+
+    @Test
+    public void givenCsvFileSink_whenChangesDelivered_thenAssertHeaderAndTopOfBookLines() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("books.csv");
+        classUnderTest.register("file", null, new CsvFileSink(file), 16);
+
+        classUnderTest.onOrderBookUpdate(XBT_TO_USD, prepareOrderBook(100f), 1L);
+        classUnderTest.onOrderBookUpdate(ETH_TO_USD, new OrderBook(), 1L);
+        classUnderTest.close();
+
+        List<String> lines = Files.readAllLines(file, UTF_8);
+        assertThat(lines.size(), is(3));
+        assertThat(lines.get(0), is(CsvFileSink.HEADER));
+        assertThat(lines.get(1).substring(lines.get(1).indexOf(',') + 1), is("XBT/USD,99.0,2.0,100.0,1.0"));
+        assertThat(lines.get(2).substring(lines.get(2).indexOf(',') + 1), is("ETH/USD,,,,"));
+    }
+
+    @Test
+    public void givenClosedRuntime_whenRegister_thenAssertRejected() {
+        classUnderTest.close();
+
+        assertThrows(IllegalStateException.class,
+                () -> classUnderTest.register("late", null, change -> { }, 1));
+        assertThat(classUnderTest.getStats().isEmpty(), is(true));
+    }
+
+    private static OrderBook prepareOrderBook(float bestAsk) {
+        Map<Float, Float> asks = new TreeMap<>();
+        asks.put(bestAsk, 1f);
+        asks.put(bestAsk + 1, 1f);
+        asks.put(bestAsk + 2, 1f);
+        Map<Float, Float> bids = new TreeMap<>();
+        bids.put(bestAsk - 1, 2f);
+        bids.put(bestAsk - 2, 2f);
+        return new OrderBook(asks, bids);
+    }
+}
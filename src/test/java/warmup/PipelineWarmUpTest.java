@@ -0,0 +1,37 @@
+package warmup;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import model.OrderBook;
+
+public class PipelineWarmUpTest {
+
+    @Test
+    public void givenTimeBudget_whenRun_thenAssertPipelineDrivenOnThrowawayBooks() {
+        List<String> createdPairs = new ArrayList<>();
+        AtomicLong levelChanges = new AtomicLong();
+
+        long messages = PipelineWarmUp.run(pair -> {
+            createdPairs.add(pair);
+            OrderBook book = new OrderBook();
+            book.addLevelChangeListener((ask, price, previousVolume, volume) -> levelChanges.incrementAndGet());
+            return book;
+        }, 2_000);
+
+        assertThat(messages, greaterThan(10_000L));
+        // one book per round, all for the synthetic pair
+        assertThat(createdPairs.size(), greaterThan(0));
+        assertThat(createdPairs, everyItem(is(SyntheticBookFrames.PAIR)));
+        // the listeners of the factory's books are driven too
+        assertThat(levelChanges.get(), greaterThan(messages));
+    }
+}
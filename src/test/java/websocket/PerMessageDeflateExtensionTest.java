@@ -0,0 +1,147 @@
+package websocket;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import javax.websocket.Extension;
+
+import org.glassfish.tyrus.core.TyrusExtension;
+import org.glassfish.tyrus.core.extension.ExtendedExtension;
+import org.glassfish.tyrus.core.frame.Frame;
+import org.junit.After;
+import org.junit.Test;
+
+public class PerMessageDeflateExtensionTest {
+
+    private static final byte OPCODE_TEXT = 0x1;
+    private static final byte OPCODE_BINARY = 0x2;
+    private static final byte OPCODE_CONTINUATION = 0x0;
+    private static final String TEST_UPDATE = "[336,{\"a\":[[\"16059.40000\",\"0.00000000\",\"1669031634.946619\"],[\"16063.20000\",\"1.87000000\",\"1669031634.050850\"]]},\"book-10\",\"XBT/USD\"]";
+
+    private final Map<String, Object> properties = new HashMap<>();
+    private final ExtendedExtension.ExtensionContext context = () -> properties;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final PerMessageDeflateExtension classUnderTest = new PerMessageDeflateExtension();
+
+    @After
+    public void tearDown() {
+        classUnderTest.destroy(context);
+        deflater.end();
+    }
+
+    @Test
+    public void givenCompressedMessages_whenProcessIncoming_thenAssertInflatedWithContextTakeover() {
+        classUnderTest.onHandshakeResponse(context, emptyList());
+
+        for (int message = 0; message < 3; message++) {
+            Frame frame = classUnderTest.processIncoming(context, textFrame(compress(TEST_UPDATE), true, true));
+
+            assertThat(frame.isRsv1(), is(false));
+            assertThat(new String(frame.getPayloadData(), UTF_8), is(TEST_UPDATE));
+        }
+
+        CompressionStats stats = classUnderTest.getStats();
+        assertThat(stats.getCompressedFrames(), is(3L));
+        assertThat(stats.getPayloadBytes(), is(3L * TEST_UPDATE.length()));
+        // repeated messages compress against the shared window
+        assertThat(stats.getWireBytes(), lessThan((long) TEST_UPDATE.length()));
+        assertThat(stats.getCompressionRatio(), greaterThan(1d));
+    }
+
+    @Test
+    public void givenNoContextTakeover_whenProcessIncoming_thenAssertEachMessageInflatedOnItsOwn() {
+        classUnderTest.onHandshakeResponse(context,
+                singletonList(new TyrusExtension.TyrusParameter("server_no_context_takeover", null)));
+
+        for (int message = 0; message < 2; message++) {
+            deflater.reset();
+            Frame frame = classUnderTest.processIncoming(context, textFrame(compress(TEST_UPDATE), true, true));
+
+            assertThat(new String(frame.getPayloadData(), UTF_8), is(TEST_UPDATE));
+        }
+    }
+
+    @Test
+    public void givenFragmentedCompressedMessage_whenProcessIncoming_thenAssertFragmentsInflated() {
+        classUnderTest.onHandshakeResponse(context, emptyList());
+        byte[] compressed = compress(TEST_UPDATE);
+        int split = compressed.length / 2;
+
+        Frame first = classUnderTest.processIncoming(context,
+                frame(OPCODE_TEXT, Arrays.copyOfRange(compressed, 0, split), false, true));
+        Frame last = classUnderTest.processIncoming(context,
+                frame(OPCODE_CONTINUATION, Arrays.copyOfRange(compressed, split, compressed.length), true, false));
+
+        String inflated = new String(first.getPayloadData(), UTF_8) + new String(last.getPayloadData(), UTF_8);
+        assertThat(inflated, is(TEST_UPDATE));
+        assertThat(classUnderTest.getStats().getCompressedFrames(), is(2L));
+    }
+
+    @Test
+    public void givenUncompressedMessage_whenProcessIncoming_thenAssertFrameIsPassedThrough() {
+        classUnderTest.onHandshakeResponse(context, emptyList());
+        Frame frame = textFrame(TEST_UPDATE.getBytes(UTF_8), true, false);
+
+        assertThat(classUnderTest.processIncoming(context, frame), sameInstance(frame));
+        assertThat(classUnderTest.getStats().getWireBytes(), is((long) TEST_UPDATE.length()));
+        assertThat(classUnderTest.getStats().getCompressedFrames(), is(0L));
+    }
+
+    @Test
+    public void givenTextAsBinary_whenProcessIncoming_thenAssertTextMessageDeliveredAsBinary() {
+        PerMessageDeflateExtension textAsBinary = new PerMessageDeflateExtension(true);
+        textAsBinary.onHandshakeResponse(context, emptyList());
+        byte[] compressed = compress(TEST_UPDATE);
+        int split = compressed.length / 2;
+
+        Frame first = textAsBinary.processIncoming(context,
+                frame(OPCODE_TEXT, Arrays.copyOfRange(compressed, 0, split), false, true));
+        Frame last = textAsBinary.processIncoming(context,
+                frame(OPCODE_CONTINUATION, Arrays.copyOfRange(compressed, split, compressed.length), true, false));
+        Frame uncompressed = textAsBinary.processIncoming(context, textFrame(TEST_UPDATE.getBytes(UTF_8), true, false));
+
+        assertThat(first.getOpcode(), is(OPCODE_BINARY));
+        assertThat(last.getOpcode(), is(OPCODE_CONTINUATION));
+        assertThat(new String(first.getPayloadData(), UTF_8) + new String(last.getPayloadData(), UTF_8),
+                is(TEST_UPDATE));
+        assertThat(uncompressed.getOpcode(), is(OPCODE_BINARY));
+        assertThat(new String(uncompressed.getPayloadData(), UTF_8), is(TEST_UPDATE));
+    }
+
+    @Test
+    public void givenExtension_whenGetName_thenAssertPerMessageDeflate() {
+        Extension extension = classUnderTest;
+
+        assertThat(extension.getName(), is("permessage-deflate"));
+    }
+
+    /**
+     * Compress as a permessage-deflate sender does: sync flush and drop the trailing empty block.
+     */
+    private byte[] compress(String message) {
+        deflater.setInput(message.getBytes(UTF_8));
+        byte[] output = new byte[1024];
+        int length = deflater.deflate(output, 0, output.length, Deflater.SYNC_FLUSH);
+        return Arrays.copyOf(output, length - 4);
+    }
+
+    private static Frame textFrame(byte[] payload, boolean fin, boolean rsv1) {
+        return frame(OPCODE_TEXT, payload, fin, rsv1);
+    }
+
+    private static Frame frame(byte opcode, byte[] payload, boolean fin, boolean rsv1) {
+        return Frame.builder().opcode(opcode).fin(fin).rsv1(rsv1).payloadData(payload).payloadLength(payload.length)
+                .build();
+    }
+}
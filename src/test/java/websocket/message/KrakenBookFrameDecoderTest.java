@@ -0,0 +1,181 @@
+package websocket.message;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class KrakenBookFrameDecoderTest {
+
+    private static final String TEST_SNAPSHOT = "[336,{\"as\":[[\"16059.40000\",\"1.43560000\",\"1669028780.983665\"],[\"16063.20000\",\"1.31000000\",\"1669028780.983665\"]],\"bs\":[[\"16050.10000\",\"0.00700000\",\"1669028775.666380\"]]},\"book-10\",\"XBT/USD\"]";
+    private static final String TEST_ASKS_AND_BIDS_UPDATE = "[336, {\"a\":[[\"16059.40000\", \"0.00000000\", \"1669031634.946619\"],[\"16063.20000\", \"1.87000000\", \"1669031634.050850\", \"r\"]]}, {\"b\":[[\"16050.10000\", \"2.50000000\", \"1669031634.946619\"]],\"c\":\"2867552989\"}, \"book-10\", \"XBT/USD\"]";
+    private static final String TEST_RESPONSE_WITH_EVENT = "{\"connectionID\":8563586709029910710,\"event\":\"systemStatus\",\"status\":\"online\",\"version\":\"1.9.0\"}";
+
+    private final KrakenBookFrameDecoder classUnderTest = new KrakenBookFrameDecoder();
+
+    @Test
+    public void givenSnapshotMessage_whenDecode_thenAssertAllLevelsDecoded() {
+        BookFrame frame = classUnderTest.decode(toBuffer(TEST_SNAPSHOT));
+
+        assertThat(frame.type, is(BookFrame.Type.SNAPSHOT));
+        assertThat(frame.pair, is("XBT/USD"));
+        assertThat(frame.askCount, is(2));
+        assertThat(frame.askPrices[0], is(Float.parseFloat("16059.40000")));
+        assertThat(frame.askVolumes[0], is(Float.parseFloat("1.43560000")));
+        assertThat(frame.askPrices[1], is(Float.parseFloat("16063.20000")));
+        assertThat(frame.askVolumes[1], is(Float.parseFloat("1.31000000")));
+        assertThat(frame.bidCount, is(1));
+        assertThat(frame.bidPrices[0], is(Float.parseFloat("16050.10000")));
+        assertThat(frame.bidVolumes[0], is(Float.parseFloat("0.00700000")));
+    }
+
+    @Test
+    public void givenUpdateWithAsksAndBids_whenDecode_thenAssertBothSidesDecoded() {
+        BookFrame frame = classUnderTest.decode(toBuffer(TEST_ASKS_AND_BIDS_UPDATE));
+
+        assertThat(frame.type, is(BookFrame.Type.UPDATE));
+        assertThat(frame.pair, is("XBT/USD"));
+        assertThat(frame.askCount, is(2));
+        assertThat(frame.askVolumes[0], is(0f));
+        assertThat(frame.askVolumes[1], is(1.87f));
+        assertThat(frame.bidCount, is(1));
+        assertThat(frame.bidVolumes[0], is(2.5f));
+    }
+
+    @Test
+    public void givenEventMessage_whenDecode_thenNoBookIsDecoded() {
+        BookFrame frame = classUnderTest.decode(toBuffer(TEST_RESPONSE_WITH_EVENT));
+
+        assertThat(frame.type, is(BookFrame.Type.OTHER));
+        assertThat(frame.pair, nullValue());
+    }
+
+    @Test
+    public void givenFragmentedMessage_whenDecode_thenAssertDecodedOnLastFragment() {
+        byte[] message = TEST_ASKS_AND_BIDS_UPDATE.getBytes(UTF_8);
+
+        assertThat(classUnderTest.decode(ByteBuffer.wrap(message, 0, 10), false), nullValue());
+        assertThat(classUnderTest.decode(ByteBuffer.wrap(message, 10, 50), false), nullValue());
+        BookFrame frame = classUnderTest.decode(ByteBuffer.wrap(message, 60, message.length - 60), true);
+
+        assertThat(frame.type, is(BookFrame.Type.UPDATE));
+        assertThat(frame.askCount, is(2));
+        assertThat(frame.bidCount, is(1));
+        assertThat(frame.bidPrices[0], is(Float.parseFloat("16050.10000")));
+    }
+
+    @Test
+    public void givenKnownPair_whenDecodeAgain_thenSamePairNameInstanceIsReused() {
+        String pair = classUnderTest.decode(toBuffer(TEST_SNAPSHOT)).pair;
+
+        assertThat(classUnderTest.decode(toBuffer(TEST_ASKS_AND_BIDS_UPDATE)).pair, sameInstance(pair));
+    }
+
+    @Test
+    public void givenTruncatedMessage_whenDecode_thenExceptionIsThrown() {
+        ByteBuffer truncated = toBuffer(TEST_SNAPSHOT.substring(0, 40));
+
+        assertThrows(IllegalArgumentException.class, () -> classUnderTest.decode(truncated));
+    }
+
+    @Test
+    public void givenExponentNotation_whenDecode_thenAssertSameAsParseFloat() {
+        String update = "[336,{\"a\":[[\"1.6e4\",\"1.0e-5\",\"1669031634.946619\"],"
+                + "[\"16063.2E+0\",\"25E-1\",\"1669031634.946619\"]]},\"book-10\",\"XBT/USD\"]";
+
+        BookFrame frame = classUnderTest.decode(toBuffer(update));
+
+        assertThat(frame.askPrices[0], is(16000f));
+        assertThat(frame.askVolumes[0], is(Float.parseFloat("1.0e-5")));
+        assertThat(frame.askPrices[1], is(Float.parseFloat("16063.2")));
+        assertThat(frame.askVolumes[1], is(2.5f));
+    }
+
+    @Test
+    public void givenDecimalRoundingToFloatMidpointInDouble_whenDecode_thenAssertSameAsParseFloat() {
+        // exactly representable digits whose double rounds onto a float midpoint, so casting it rounds the wrong way
+        String decimal = "7.023263022160282e16";
+        assertThat((float) Double.parseDouble(decimal), not(Float.parseFloat(decimal)));
+
+        BookFrame frame = classUnderTest.decode(toBuffer("[336,{\"a\":[[\"" + decimal
+                + "\",\"1\",\"1669031634.946619\"]]},\"book-10\",\"XBT/USD\"]"));
+
+        assertThat(frame.askPrices[0], is(Float.parseFloat(decimal)));
+    }
+
+    @Test
+    public void givenRandomDecimals_whenDecode_thenAssertSameAsParseFloat() {
+        Random random = new Random(31);
+        for (int message = 0; message < 200; message++) {
+            String[] decimals = new String[200];
+            StringBuilder levels = new StringBuilder();
+            for (int i = 0; i < decimals.length; i += 2) {
+                decimals[i] = randomDecimal(random);
+                decimals[i + 1] = randomDecimal(random);
+                levels.append(i == 0 ? "" : ",").append(format("[\"%s\",%s,\"1669031634.946619\"]", decimals[i],
+                        decimals[i + 1]));
+            }
+
+            BookFrame frame = classUnderTest.decode(toBuffer(format("[336,{\"a\":[%s]},\"book-10\",\"XBT/USD\"]",
+                    levels)));
+
+            assertThat(frame.askCount, is(decimals.length / 2));
+            for (int i = 0; i < frame.askCount; i++) {
+                assertThat(decimals[2 * i], frame.askPrices[i], is(Float.parseFloat(decimals[2 * i])));
+                assertThat(decimals[2 * i + 1], frame.askVolumes[i], is(Float.parseFloat(decimals[2 * i + 1])));
+            }
+        }
+    }
+
+    @Test
+    public void givenExponentWithoutDigits_whenDecode_thenExceptionIsThrown() {
+        ByteBuffer malformed =
+                toBuffer("[336,{\"a\":[[\"1.5e\",\"1\",\"1669031634.946619\"]]},\"book-10\",\"XBT/USD\"]");
+
+        assertThrows(IllegalArgumentException.class, () -> classUnderTest.decode(malformed));
+    }
+
+    /**
+     * Plain decimals as Kraken sends them, long digit strings beyond double precision, and exponent forms down to
+     * float subnormals and beyond the float range.
+     */
+    private static String randomDecimal(Random random) {
+        StringBuilder decimal = new StringBuilder();
+        if (random.nextInt(8) == 0) {
+            decimal.append('-');
+        }
+        int integerDigits = random.nextInt(8) == 0 ? random.nextInt(25) : random.nextInt(7);
+        for (int i = 0; i < integerDigits; i++) {
+            decimal.append(random.nextInt(10));
+        }
+        if (integerDigits == 0) {
+            decimal.append('0');
+        }
+        if (random.nextBoolean()) {
+            int fractionDigits = random.nextInt(8) == 0 ? 1 + random.nextInt(25) : 1 + random.nextInt(10);
+            decimal.append('.');
+            for (int i = 0; i < fractionDigits; i++) {
+                decimal.append(random.nextInt(10));
+            }
+        }
+        if (random.nextInt(4) == 0) {
+            decimal.append(random.nextBoolean() ? 'e' : 'E');
+            int exponent = random.nextInt(100) - 60;
+            decimal.append(exponent >= 0 && random.nextBoolean() ? "+" : "").append(exponent);
+        }
+        return decimal.toString();
+    }
+
+    private static ByteBuffer toBuffer(String message) {
+        return ByteBuffer.wrap(message.getBytes(UTF_8));
+    }
+}
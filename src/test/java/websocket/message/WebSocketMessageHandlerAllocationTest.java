@@ -0,0 +1,189 @@
+package websocket.message;
+
+import static java.lang.String.format;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.emptyString;
+import static org.junit.Assume.assumeTrue;
+import static websocket.message.WebSocketMessagePayloadHelper.BOOK_DEPTH;
+import static websocket.message.WebSocketMessagePayloadHelper.createOrderBook;
+import static websocket.message.WebSocketMessagePayloadHelper.getOrderBookPair;
+import static websocket.message.WebSocketMessagePayloadHelper.updateOrderBook;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import benchmark.AllocationMeter;
+import benchmark.Measurement;
+import benchmark.Measurement.Operation;
+import model.OrderBook;
+import model.OrderBookElement;
+import warmup.SyntheticBookFrames;
+
+/**
+ * Allocation budget harness for the steady-state message path. Drives synthetic Kraken update frames through
+ * {@link WebSocketMessageHandler} after a warm-up and measures the bytes allocated per message for each stage of
+ * the pipeline. The build fails when a stage exceeds its budget.
+ * <p>
+ * Budgets are bytes per message, checked against the total allocated over all measured messages, and can be
+ * overridden with {@code -Dallocation.budget.<stage>=<bytes>}, e.g. {@code mvn test -Dallocation.budget.apply=0}.
+ * The String path defaults are ceilings for the Gson based decoder and are meant to be ratcheted down towards zero
+ * as the path gets optimized, never raised to make a regression pass.
+ * The byte level frame path must not allocate at all.
+ */
+public class WebSocketMessageHandlerAllocationTest {
+
+    private static final int DISTINCT_FRAMES = 1024;
+    private static final int WARM_UP_MESSAGES = Integer.getInteger("allocation.warmup", 20_000);
+    private static final int MEASURED_MESSAGES = Integer.getInteger("allocation.messages", 50_000);
+    private static final int MEASURED_ROUNDS = 3;
+
+    private final SyntheticBookFrames frames = new SyntheticBookFrames(DISTINCT_FRAMES, 42);
+
+    @Test
+    public void givenSteadyStateUpdateFrames_whenHandlingMessages_thenAllocationStaysWithinBudget() {
+        assumeTrue("Thread allocation counters are not supported by this JVM", AllocationMeter.isSupported());
+
+        List<StageResult> results = new ArrayList<>();
+        results.add(measure("pair", this::extractPair));
+        results.add(measure("apply", prepareApplyStage()));
+        results.add(measure("decode", prepareDecodeStage()));
+        results.add(measure("handler", prepareHandlerStage()));
+        results.add(measure("frame", prepareFrameStage()));
+
+        StringBuilder report = new StringBuilder(format("Allocation per message over %d messages:%n",
+                MEASURED_MESSAGES));
+        StringBuilder violations = new StringBuilder();
+        for (StageResult result : results) {
+            report.append(result).append(System.lineSeparator());
+            if (result.isOverBudget()) {
+                violations.append(result).append(System.lineSeparator());
+            }
+        }
+        Measurement.report("%s", report);
+
+        assertThat("Stages over allocation budget:" + System.lineSeparator() + violations,
+                violations.toString(), emptyString());
+    }
+
+    /**
+     * Keeps the lowest of a few rounds: G1 occasionally books a few hundred bytes of TLAB bookkeeping on the thread,
+     * while a real per-message allocation shows in every round.
+     */
+    private StageResult measure(String stage, Operation action) {
+        Measurement measurement = Measurement.measure(action, DISTINCT_FRAMES, WARM_UP_MESSAGES, MEASURED_MESSAGES);
+        for (int round = 1; round < MEASURED_ROUNDS; round++) {
+            Measurement next = Measurement.measure(action, DISTINCT_FRAMES, 0, MEASURED_MESSAGES);
+            if (next.getAllocatedBytes() < measurement.getAllocatedBytes()) {
+                measurement = next;
+            }
+        }
+        return new StageResult(stage, measurement, Long.getLong("allocation.budget." + stage,
+                DefaultBudget.of(stage)));
+    }
+
+    private void extractPair(int frame) {
+        getOrderBookPair(frames.getUpdates().get(frame));
+    }
+
+    private Operation prepareApplyStage() {
+        OrderBook book = createOrderBook(frames.getSnapshot());
+        // decoded up front, only applying the levels is measured; truncated like the handler does
+        List<List<OrderBookElement>> decodedUpdates = new ArrayList<>(DISTINCT_FRAMES);
+        List<Boolean> askUpdates = new ArrayList<>(DISTINCT_FRAMES);
+        KrakenBookFrameDecoder decoder = new KrakenBookFrameDecoder();
+        for (ByteBuffer update : frames.getByteUpdates()) {
+            BookFrame decoded = decoder.decode(update.duplicate());
+            boolean asks = decoded.askCount > 0;
+            decodedUpdates.add(asks ? levels(decoded.askPrices, decoded.askVolumes, decoded.askCount)
+                    : levels(decoded.bidPrices, decoded.bidVolumes, decoded.bidCount));
+            askUpdates.add(asks);
+        }
+        return frame -> {
+            if (askUpdates.get(frame)) {
+                book.updateAsks(decodedUpdates.get(frame));
+            } else {
+                book.updateBids(decodedUpdates.get(frame));
+            }
+            book.truncate(BOOK_DEPTH);
+        };
+    }
+
+    private static List<OrderBookElement> levels(float[] prices, float[] volumes, int count) {
+        List<OrderBookElement> levels = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            levels.add(new OrderBookElement(prices[i], volumes[i]));
+        }
+        return levels;
+    }
+
+    private Operation prepareDecodeStage() {
+        OrderBook book = createOrderBook(frames.getSnapshot());
+        return frame -> {
+            updateOrderBook(frames.getUpdates().get(frame), book);
+            book.truncate(BOOK_DEPTH);
+        };
+    }
+
+    private Operation prepareHandlerStage() {
+        WebSocketMessageHandler handler = new WebSocketMessageHandler();
+        handler.handleMessage(frames.getSnapshot());
+        return frame -> handler.handleMessage(frames.getUpdates().get(frame));
+    }
+
+    /**
+     * Byte level path of the handler, decoding the UTF-8 frames without any String.
+     */
+    private Operation prepareFrameStage() {
+        WebSocketMessageHandler handler = new WebSocketMessageHandler();
+        handler.handleMessage(frames.byteSnapshot(), true);
+        return frame -> handler.handleMessage(frames.getByteUpdates().get(frame), true);
+    }
+
+    /**
+     * Default per-message ceilings in bytes. The target for every stage is zero.
+     */
+    private static final class DefaultBudget {
+
+        static long of(String stage) {
+            switch (stage) {
+            case "pair":
+                return 4_096;
+            case "apply":
+                return 32;
+            case "decode":
+                return 5_120;
+            case "handler":
+                return 9_216;
+            case "frame":
+                return 0;
+            default:
+                return 0;
+            }
+        }
+    }
+
+    private static final class StageResult {
+
+        private final String stage;
+        private final Measurement measurement;
+        private final long budget;
+
+        StageResult(String stage, Measurement measurement, long budget) {
+            this.stage = stage;
+            this.measurement = measurement;
+            this.budget = budget;
+        }
+
+        boolean isOverBudget() {
+            return measurement.exceeds(budget);
+        }
+
+        @Override
+        public String toString() {
+            return format("  %-8s %12.3f bytes/msg (budget %d)", stage, measurement.bytesPerOperation(), budget);
+        }
+    }
+}
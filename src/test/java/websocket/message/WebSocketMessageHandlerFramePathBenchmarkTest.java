@@ -0,0 +1,55 @@
+package websocket.message;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+import org.junit.Test;
+
+import benchmark.AllocationMeter;
+import benchmark.Measurement;
+import model.OrderBook;
+import warmup.SyntheticBookFrames;
+
+/**
+ * Benchmarks the byte level frame path of {@link WebSocketMessageHandler} against the String path on the same
+ * synthetic update frames, checking the frame path is faster, allocates nothing and builds the same book. Runs with
+ * {@code mvn test -Pbenchmark}; tune with {@code -Dbenchmark.messages}.
+ */
+public class WebSocketMessageHandlerFramePathBenchmarkTest {
+
+    private static final int DISTINCT_FRAMES = 1024;
+    private static final int MESSAGES = Integer.getInteger("benchmark.messages", 200_000);
+
+    private final SyntheticBookFrames frames = new SyntheticBookFrames(DISTINCT_FRAMES, 11);
+
+    @Test
+    public void givenSameUpdateFrames_whenHandledAsStringAndAsBytes_thenAssertFramePathIsFasterAndAllocationFree() {
+        WebSocketMessageHandler stringPath = new WebSocketMessageHandler();
+        WebSocketMessageHandler framePath = new WebSocketMessageHandler();
+        stringPath.handleMessage(frames.getSnapshot());
+        framePath.handleMessage(frames.byteSnapshot(), true);
+
+        Measurement stringResult = Measurement.measure(frame -> stringPath.handleMessage(frames.getUpdates().get(frame)),
+                DISTINCT_FRAMES, MESSAGES, MESSAGES);
+        Measurement frameResult = Measurement.measure(
+                frame -> framePath.handleMessage(frames.getByteUpdates().get(frame), true), DISTINCT_FRAMES, MESSAGES,
+                MESSAGES);
+        Measurement.report("String path: %s", stringResult);
+        Measurement.report("Frame path:  %s (%.1fx throughput)", frameResult, frameResult.speedUpOver(stringResult));
+
+        OrderBook expected = stringPath.handleMessage(frames.getUpdates().get(0)).get(SyntheticBookFrames.PAIR);
+        Map<String, OrderBook> actual = framePath.handleMessage(frames.getByteUpdates().get(0), true);
+        assertThat(new ArrayList<>(actual.get(SyntheticBookFrames.PAIR).getAsks().entrySet()),
+                is(new ArrayList<>(expected.getAsks().entrySet())));
+        assertThat(new ArrayList<>(actual.get(SyntheticBookFrames.PAIR).getBids().entrySet()),
+                is(new ArrayList<>(expected.getBids().entrySet())));
+        assertThat(frameResult.speedUpOver(stringResult), greaterThan(1.0));
+        assumeTrue("Thread allocation counters are not supported by this JVM", AllocationMeter.isSupported());
+        assertThat(frameResult.getAllocatedBytes(), is(0L));
+    }
+}
@@ -0,0 +1,60 @@
+package websocket.message;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static websocket.message.WebSocketMessagePayloadHelper.BOOK_DEPTH;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import model.OrderBook;
+import warmup.SyntheticBookFrames;
+
+public class WebSocketMessageHandlerTest {
+
+    private static final String COMBINED_UPDATE = "[336,{\"a\":[[\"16060.00000\",\"0.00000000\",\"1669031634.946619\"],"
+            + "[\"16060.20000\",\"3.00000000\",\"1669031634.946619\"]]},{\"b\":[[\"16059.50000\",\"2.50000000\","
+            + "\"1669031634.946619\"]],\"c\":\"2867552989\"},\"book-10\",\"XBT/USD\"]";
+
+    private final SyntheticBookFrames frames = new SyntheticBookFrames(0, 42);
+
+    @Test
+    public void givenSnapshotDeeperThanSubscription_whenHandlingMessage_thenBookIsTruncatedToSubscribedDepth() {
+        WebSocketMessageHandler handler = new WebSocketMessageHandler();
+
+        OrderBook book = handler.handleMessage(frames.getSnapshot()).get(SyntheticBookFrames.PAIR);
+
+        assertThat(book.getAsks().size(), is(BOOK_DEPTH));
+        assertThat(book.getBids().size(), is(BOOK_DEPTH));
+    }
+
+    @Test
+    public void givenSnapshotDeeperThanSubscriptionAsBytes_whenHandlingMessage_thenBookIsTruncatedToSubscribedDepth() {
+        WebSocketMessageHandler handler = new WebSocketMessageHandler();
+
+        OrderBook book = handler.handleMessage(frames.byteSnapshot(), true).get(SyntheticBookFrames.PAIR);
+
+        assertThat(book.getAsks().size(), is(BOOK_DEPTH));
+        assertThat(book.getBids().size(), is(BOOK_DEPTH));
+    }
+
+    @Test
+    public void givenCombinedAskAndBidUpdate_whenHandledByBothPaths_thenBooksAreEqual() {
+        WebSocketMessageHandler stringPath = new WebSocketMessageHandler();
+        WebSocketMessageHandler framePath = new WebSocketMessageHandler();
+        stringPath.handleMessage(frames.getSnapshot());
+        framePath.handleMessage(frames.byteSnapshot(), true);
+
+        OrderBook expected = stringPath.handleMessage(COMBINED_UPDATE).get(SyntheticBookFrames.PAIR);
+        OrderBook actual = framePath.handleMessage(ByteBuffer.wrap(COMBINED_UPDATE.getBytes(UTF_8)), true)
+                .get(SyntheticBookFrames.PAIR);
+
+        assertThat(expected.getBestAsk(), is(16060.2f));
+        assertThat(expected.getBids().get(16059.5f), is(2.5f));
+        assertThat(new ArrayList<>(actual.getAsks().entrySet()), is(new ArrayList<>(expected.getAsks().entrySet())));
+        assertThat(new ArrayList<>(actual.getBids().entrySet()), is(new ArrayList<>(expected.getBids().entrySet())));
+    }
+}